@@ -0,0 +1,129 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.ProductCatalogApplication;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.CategoryStats;
+import edu.uoc.epcsd.productcatalog.services.CategoryStatsService;
+import edu.uoc.epcsd.productcatalog.services.ItemService;
+import edu.uoc.epcsd.productcatalog.services.NewItem;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Category statistics against the in-memory H2 database of the tests, with millions of items spread over the products
+ * of a two-level category tree. The items are created through {@link ItemService#createItems(List)}, as the batch
+ * endpoint does, and a tenth of them are then made non-operational. Every call is preceded by a status change, as
+ * otherwise H2 would answer the repeated queries over unchanged tables from its result cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CategoryStatsBenchmark {
+
+    private static final int ROOT_CATEGORIES = 10;
+
+    private static final int SUBCATEGORIES = 10;
+
+    private static final int PRODUCTS = 2_000;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000000"})
+    private int items;
+
+    private ConfigurableApplicationContext context;
+
+    private CategoryStatsService categoryStatsService;
+
+    private ItemService itemService;
+
+    private Long rootCategoryId;
+
+    private long changes;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(ProductCatalogApplication.class)
+                .web(WebApplicationType.NONE)
+                // as arguments, which take precedence over the application.properties of the tests
+                .run(
+                        "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql=WARN",
+                        "--productcatalog.scheduling.enabled=false",
+                        "--productcatalog.kafka.admin.auto-create=false");
+
+        categoryStatsService = context.getBean(CategoryStatsService.class);
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        ProductService productService = context.getBean(ProductService.class);
+        itemService = context.getBean(ItemService.class);
+
+        List<Long> leafCategoryIds = new ArrayList<>();
+        for (int i = 0; i < ROOT_CATEGORIES; i++) {
+            Category root = categoryService.createCategory(null, "Categoría " + i, "Descripción de la categoría " + i);
+            if (rootCategoryId == null) {
+                rootCategoryId = root.getId();
+            }
+            for (int j = 0; j < SUBCATEGORIES; j++) {
+                leafCategoryIds.add(categoryService.createCategory(root.getId(), "Subcategoría " + i + "." + j, "Descripción").getId());
+            }
+        }
+
+        List<Long> productIds = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = productService.createProduct(leafCategoryIds.get(i % leafCategoryIds.size()), "Producto " + i, "Descripción del producto " + i,
+                    10.0 + i % 50, "Marca " + i % 20, "Modelo " + i);
+            productIds.add(product.getId());
+        }
+
+        List<NewItem> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < items; i++) {
+            batch.add(new NewItem(productIds.get(i % PRODUCTS), "SN-" + i));
+            if (batch.size() == BATCH_SIZE || i == items - 1) {
+                itemService.createItems(batch);
+                batch.clear();
+            }
+        }
+        for (int i = 0; i < items; i += 10) {
+            itemService.setOperational("SN-" + i, false);
+        }
+    }
+
+    // the same operational item, made non-operational and back in turns
+    @Setup(Level.Invocation)
+    public void changeItem() throws Exception {
+        itemService.setOperational("SN-1", changes++ % 2 == 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CategoryStats> getSubtreeStats() {
+        return categoryStatsService.getStats(rootCategoryId);
+    }
+
+    @Benchmark
+    public List<CategoryStats> getAllStats() {
+        return categoryStatsService.getAllStats();
+    }
+
+}
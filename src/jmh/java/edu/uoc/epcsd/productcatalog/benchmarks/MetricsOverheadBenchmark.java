@@ -0,0 +1,84 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.config.ServiceMetricsAspect;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.CategoryTree;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the service instrumentation on a hot path: {@link CategoryService#getCategoryTree()} with the tree already
+ * loaded, called directly, through a Prometheus timer with a percentile histogram, and through the proxy that
+ * {@link ServiceMetricsAspect} adds in the application.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+    private CategoryService categoryService;
+
+    private CategoryService timedCategoryService;
+
+    private Timer timer;
+
+    @Setup
+    public void setUp() {
+        PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // same as management.metrics.distribution.percentiles-histogram.productcatalog.service=true
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+
+        List<Category> categories = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            categories.add(Category.builder().id(id).name("Categoría " + id).description("Categoría " + id).build());
+        }
+        categoryService = new CategoryService();
+        ReflectionTestUtils.setField(categoryService, "categoryTree", CategoryTree.of(categories));
+
+        timer = Timer.builder(ServiceMetricsAspect.SERVICE_TIMER).tag("class", "CategoryService").tag("method", "getCategoryTree")
+                .tag("exception", "none").register(meterRegistry);
+
+        ServiceMetricsAspect aspect = new ServiceMetricsAspect();
+        ReflectionTestUtils.setField(aspect, "meterRegistry", meterRegistry);
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(categoryService);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        timedCategoryService = proxyFactory.getProxy();
+    }
+
+    @Benchmark
+    public CategoryTree direct() {
+        return categoryService.getCategoryTree();
+    }
+
+    @Benchmark
+    public CategoryTree timer() {
+        return timer.record(categoryService::getCategoryTree);
+    }
+
+    @Benchmark
+    public CategoryTree aspect() {
+        return timedCategoryService.getCategoryTree();
+    }
+
+}
@@ -0,0 +1,120 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
+import edu.uoc.epcsd.productcatalog.kafka.KafkaProducerConfig;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * unit_available records sent per second against an embedded broker, with the plain producer configuration
+ * (bootstrap servers and serializers only, records without key) and with the tuned one of {@link KafkaProducerConfig},
+ * keyed by product as the outbox relay sends them. Every invocation sends {@code MESSAGES} records and waits for all
+ * their acknowledgements.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ProducerThroughputBenchmark.MESSAGES)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProducerThroughputBenchmark {
+
+    static final int MESSAGES = 20_000;
+
+    private static final int PRODUCTS = 500;
+
+    private static final int PARTITIONS = 6;
+
+    private static final String UNIT_AVAILABLE_TOPIC = KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE;
+
+    @Param({"plain", "tuned"})
+    private String configuration;
+
+    private EmbeddedKafkaBroker broker;
+
+    private ConfigurableApplicationContext context;
+
+    private DefaultKafkaProducerFactory<String, ProductMessage> producerFactory;
+
+    private KafkaTemplate<String, ProductMessage> template;
+
+    private final List<ListenableFuture<SendResult<String, ProductMessage>>> futures = new ArrayList<>(MESSAGES);
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new EmbeddedKafkaBroker(1, false, PARTITIONS, UNIT_AVAILABLE_TOPIC);
+        broker.afterPropertiesSet();
+
+        Map<String, Object> configs;
+        if ("tuned".equals(configuration)) {
+            // the producer settings are bound from the properties as the application does; the bootstrap servers
+            // are passed as an argument, which overrides application.properties
+            context = new SpringApplicationBuilder(KafkaProducerConfig.class)
+                    .web(WebApplicationType.NONE)
+                    .initializers(applicationContext -> applicationContext.getBeanFactory()
+                            .registerSingleton("meterRegistry", new SimpleMeterRegistry()))
+                    .properties(
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=WARN")
+                    .run("--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString());
+            configs = context.getBean(KafkaProducerConfig.class).productMessageProducerConfigs();
+        } else {
+            configs = new HashMap<>();
+            configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+            configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+            configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        }
+
+        producerFactory = new DefaultKafkaProducerFactory<>(configs);
+        template = new KafkaTemplate<>(producerFactory);
+
+        // connect and fetch the topic metadata before measuring
+        template.send(UNIT_AVAILABLE_TOPIC, ProductMessage.builder().productId(0L).build()).get(30, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        producerFactory.destroy();
+        if (context != null) {
+            context.close();
+        }
+        broker.destroy();
+    }
+
+    @Benchmark
+    public int sendAndAwait() throws Exception {
+        boolean keyed = "tuned".equals(configuration);
+
+        futures.clear();
+        for (int i = 0; i < MESSAGES; i++) {
+            long productId = i % PRODUCTS;
+            ProductMessage message = ProductMessage.builder().productId(productId).build();
+            futures.add(keyed ? template.send(UNIT_AVAILABLE_TOPIC, String.valueOf(productId), message) : template.send(UNIT_AVAILABLE_TOPIC, message));
+        }
+
+        for (ListenableFuture<SendResult<String, ProductMessage>> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        return futures.size();
+    }
+
+}
@@ -0,0 +1,75 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessageDeserializer;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessageSerializer;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding and decoding a unit_available record with each {@code productcatalog.kafka.producer.value-format}.
+ * The record sizes are logged by KafkaMessageEncodingTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMessageEncodingBenchmark {
+
+    private static final String UNIT_AVAILABLE_TOPIC = KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE;
+
+    @Param({"json", "binary"})
+    private String format;
+
+    private Serializer<ProductMessage> serializer;
+
+    private Deserializer<ProductMessage> deserializer;
+
+    private ProductMessage productMessage;
+
+    private Headers headers;
+
+    private byte[] value;
+
+    @Setup
+    public void setUp() {
+        if ("binary".equals(format)) {
+            serializer = new ProductMessageSerializer();
+            deserializer = new ProductMessageDeserializer();
+        } else {
+            serializer = new JsonSerializer<>();
+            deserializer = new JsonDeserializer<>(ProductMessage.class, false);
+        }
+
+        productMessage = ProductMessage.builder().productId(123_456L).build();
+        headers = new RecordHeaders();
+        value = serializer.serialize(UNIT_AVAILABLE_TOPIC, headers, productMessage);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(UNIT_AVAILABLE_TOPIC, new RecordHeaders(), productMessage);
+    }
+
+    @Benchmark
+    public ProductMessage deserialize() {
+        return deserializer.deserialize(UNIT_AVAILABLE_TOPIC, headers, value);
+    }
+
+}
@@ -0,0 +1,88 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.services.ProductDetails;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchIndex;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries against the in-memory search index, filled with {@code products} generated products whose names, brands,
+ * models and descriptions are drawn from small vocabularies, so that common terms match a large share of the index
+ * as they would in a real catalog. The index is used on its own, without the Spring context, since it never reads
+ * the database to answer a query.
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final List<String> BRANDS = List.of("Canon", "Nikon", "Sony", "Fujifilm", "Panasonic", "Phillips", "Godox", "Manfrotto");
+
+    private static final List<String> KINDS = List.of("Cámara", "Objetivo", "Foco", "Difusor", "Trípode", "Micrófono", "Flash", "Batería");
+
+    private static final List<String> FEATURES = List.of("compacta", "profesional", "LED", "inalámbrico", "estabilizado", "zoom",
+            "gran angular", "luz blanca", "sin espejo", "fotograma completo", "resistente", "portátil");
+
+    @Param({"10000", "100000"})
+    private int products;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new ProductSearchIndex();
+
+        Random random = new Random(42);
+        for (long id = 1; id <= products; id++) {
+            String brand = BRANDS.get(random.nextInt(BRANDS.size()));
+            String kind = KINDS.get(random.nextInt(KINDS.size()));
+            String model = brand.substring(0, 1) + (100 + random.nextInt(900));
+            index.index(ProductDetails.builder()
+                    .id(id)
+                    .version(0L)
+                    .name(kind + " " + brand + " " + model)
+                    .description(kind + " " + FEATURES.get(random.nextInt(FEATURES.size())) + " " + FEATURES.get(random.nextInt(FEATURES.size())))
+                    .dailyPrice(10.0 + random.nextInt(200))
+                    .brand(brand)
+                    .model(model)
+                    .categoryId(1L)
+                    .categoryName(kind)
+                    .categoryPath(List.of(kind))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public ProductSearchResult searchCommonTerm() {
+        return index.search("canon", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchResult searchSeveralTerms() {
+        return index.search("cámara canon profesional", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchResult searchPrefix() {
+        return index.search("c5", 0, 20);
+    }
+
+    // the shortest prefix that is expanded, to most of the terms starting with it
+    @Benchmark
+    public ProductSearchResult searchShortPrefix() {
+        return index.search("ca", 0, 20);
+    }
+
+    @Benchmark
+    public ProductSearchResult searchRareModel() {
+        return index.search("n123", 0, 20);
+    }
+
+}
@@ -0,0 +1,122 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetProductResponse;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Item;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.services.CategoryTree;
+import edu.uoc.epcsd.productcatalog.services.ProductDetails;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping and serialization of the objects returned by the REST API and sent to Kafka. {@code categoryDepth} is the
+ * length of the parent chain of the product category, which Jackson serializes in full for entities.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final String UNIT_AVAILABLE_TOPIC = KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE;
+
+    @Param({"1", "5"})
+    private int categoryDepth;
+
+    private ObjectMapper objectMapper;
+
+    private JsonSerializer<ProductMessage> productMessageSerializer;
+
+    private Product product;
+
+    private Item item;
+
+    private ProductMessage productMessage;
+
+    private CategoryTree categoryTree;
+
+    @Setup
+    public void setUp() {
+        // same defaults as the ObjectMapper Spring Boot gives the controllers
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // KafkaProducerConfig configures the value serializer by class, so it is created with its defaults too
+        productMessageSerializer = new JsonSerializer<>();
+
+        List<Category> categories = new ArrayList<>();
+        Category category = null;
+        for (int depth = 0; depth < categoryDepth; depth++) {
+            category = Category.builder()
+                    .id((long) depth + 1)
+                    .name("Categoría " + depth)
+                    .description("Descripción de la categoría " + depth)
+                    .parent(category)
+                    .build();
+            categories.add(category);
+        }
+        categoryTree = CategoryTree.of(categories);
+
+        product = Product.builder()
+                .id(100L)
+                .name("Canon EOS R8")
+                .description("Cámara de fotos sin espejo de fotograma completo")
+                .dailyPrice(45.0)
+                .brand("Canon")
+                .model("EOS R8")
+                .category(category)
+                .build();
+
+        item = Item.builder()
+                .serialNumber("SN-0000001")
+                .status(ItemStatus.OPERATIONAL)
+                .product(product)
+                .build();
+
+        productMessage = ProductMessage.builder().productId(product.getId()).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        productMessageSerializer.close();
+    }
+
+    @Benchmark
+    public GetProductResponse getProductResponseFromDomain() {
+        return GetProductResponse.fromDetails(ProductDetails.fromDomain(product, categoryTree));
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serializeGetProductResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(GetProductResponse.fromDetails(ProductDetails.fromDomain(product, categoryTree)));
+    }
+
+    @Benchmark
+    public byte[] serializeItem() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(item);
+    }
+
+    @Benchmark
+    public byte[] serializeProductMessage() {
+        // the producer passes the record headers, where the serializer adds the type id
+        return productMessageSerializer.serialize(UNIT_AVAILABLE_TOPIC, new RecordHeaders(), productMessage);
+    }
+
+}
@@ -0,0 +1,133 @@
+package edu.uoc.epcsd.productcatalog.benchmarks;
+
+import edu.uoc.epcsd.productcatalog.ProductCatalogApplication;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Item;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.repositories.ItemRepository;
+import edu.uoc.epcsd.productcatalog.repositories.ItemStatusChangeRepository;
+import edu.uoc.epcsd.productcatalog.repositories.OutboxEventRepository;
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.ItemService;
+import edu.uoc.epcsd.productcatalog.services.ProductDetails;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service calls against the in-memory H2 database of the tests, through the whole Spring context (transactions,
+ * caching, repositories). Kafka is never contacted: items only write to the outbox and the relay is not scheduled.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+    private static final int CATEGORIES = 10;
+
+    @Param({"1000"})
+    private int products;
+
+    private ConfigurableApplicationContext context;
+
+    private ProductService productService;
+
+    private ItemService itemService;
+
+    private ItemRepository itemRepository;
+
+    private OutboxEventRepository outboxEventRepository;
+
+    private ItemStatusChangeRepository itemStatusChangeRepository;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    private final AtomicLong serialNumbers = new AtomicLong();
+
+    private final AtomicLong newProducts = new AtomicLong();
+
+    @Setup
+    public void setUp() throws ProductException {
+        context = new SpringApplicationBuilder(ProductCatalogApplication.class)
+                .web(WebApplicationType.NONE)
+                // as arguments, which take precedence over the application.properties of the tests
+                .run(
+                        "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql=WARN",
+                        "--productcatalog.scheduling.enabled=false",
+                        "--productcatalog.kafka.admin.auto-create=false");
+
+        productService = context.getBean(ProductService.class);
+        itemService = context.getBean(ItemService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        outboxEventRepository = context.getBean(OutboxEventRepository.class);
+        itemStatusChangeRepository = context.getBean(ItemStatusChangeRepository.class);
+
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        for (int i = 0; i < CATEGORIES; i++) {
+            Category category = categoryService.createCategory(null, "Categoría " + i, "Descripción de la categoría " + i);
+            categoryIds.add(category.getId());
+        }
+        for (int i = 0; i < products; i++) {
+            Product product = productService.createProduct(categoryIds.get(i % CATEGORIES), "Producto " + i, "Descripción del producto " + i,
+                    10.0 + i % 50, "Marca " + i % 20, "Modelo " + i);
+            productIds.add(product.getId());
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteItems() {
+        outboxEventRepository.deleteAllInBatch();
+        itemStatusChangeRepository.deleteAllInBatch();
+        itemRepository.deleteAllInBatch();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductDetails> findAllProducts() {
+        return productService.findAll(null, null);
+    }
+
+    @Benchmark
+    public List<ProductDetails> findProductsByCategory() {
+        return productService.findAll(null, categoryIds.get(ThreadLocalRandom.current().nextInt(CATEGORIES)));
+    }
+
+    @Benchmark
+    public List<ProductDetails> findProductsByName() {
+        return productService.findAll("Producto " + ThreadLocalRandom.current().nextInt(products), null);
+    }
+
+    @Benchmark
+    public Item createItem() throws ProductException {
+        return itemService.createItem(productIds.get(ThreadLocalRandom.current().nextInt(products)), "SN-" + serialNumbers.incrementAndGet());
+    }
+
+    @Benchmark
+    public Product createProduct() throws ProductException {
+        return productService.createProduct(categoryIds.get(ThreadLocalRandom.current().nextInt(CATEGORIES)), "Nuevo producto " + newProducts.incrementAndGet(),
+                "Descripción", 10.0, "Marca", "Modelo");
+    }
+
+}
@@ -0,0 +1,87 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests of the traffic mix, each one on a random product, category or item of the seeded catalog.
+ */
+public enum Endpoint {
+
+    GET_PRODUCT("getProduct", "GET /products/{productId}") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/products/" + data.randomProductId(random))).GET();
+        }
+    },
+
+    LIST_PRODUCTS("listProducts", "GET /products?categoryId|name") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random) {
+            // half by category (with its subcategories), half by product name
+            String query = random.nextBoolean()
+                    ? "categoryId=" + data.randomCategoryId(random) + "&includeSubcategories=true"
+                    : "name=" + URLEncoder.encode(data.randomProductName(random), StandardCharsets.UTF_8);
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/products?" + query)).GET();
+        }
+    },
+
+    GET_ITEM("getItem", "GET /items/{serialNumber}") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/items/" + data.randomSerialNumber(random))).GET();
+        }
+    },
+
+    CREATE_ITEM("createItem", "POST /items") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random) {
+            String body = "{\"productId\":" + data.randomProductId(random) + ",\"serialNumber\":\"" + data.newSerialNumber() + "\"}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/items"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+    },
+
+    UPDATE_ITEM_STATUS("updateItemStatus", "PATCH /items/{serialNumber}/status") {
+        @Override
+        HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random) {
+            String serialNumber = data.randomSerialNumber(random);
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/items/" + serialNumber + "/status"))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(String.valueOf(data.toggleOperational(serialNumber))));
+        }
+    };
+
+    private final String name;
+
+    private final String description;
+
+    Endpoint(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    abstract HttpRequest.Builder request(String baseUrl, SeedData data, ThreadLocalRandom random);
+
+    public static Endpoint fromName(String name) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.name.equals(name)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint " + name);
+    }
+
+}
@@ -0,0 +1,72 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests to one endpoint during a step. The latency of a request runs from the time
+ * it was scheduled to arrive, so the time it waited behind a slow client is not lost.
+ */
+class EndpointStats {
+
+    static final String SATURATED = "saturated";
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    // the status codes of the responses, and the exceptions of the requests that got none
+    private final ConcurrentMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    void record(long latencyNanos, int statusCode) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY_MICROS));
+        if (statusCode >= 400) {
+            errors.increment();
+        }
+        count(String.valueOf(statusCode));
+    }
+
+    void recordFailure(long latencyNanos, Throwable failure) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY_MICROS));
+        errors.increment();
+        count(failure.getClass().getSimpleName());
+    }
+
+    // the request was never sent, because too many others were still waiting for their response
+    void recordSaturated() {
+        errors.increment();
+        count(SATURATED);
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    Histogram getLatencies() {
+        return latencies;
+    }
+
+    long getRequests() {
+        return outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    Map<String, Long> getOutcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return counts;
+    }
+
+}
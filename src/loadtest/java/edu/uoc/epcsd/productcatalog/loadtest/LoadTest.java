@@ -0,0 +1,231 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import edu.uoc.epcsd.productcatalog.ProductCatalogApplication;
+import lombok.extern.log4j.Log4j2;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots the application against the in-memory H2 database of the tests, with Kafka stubbed, seeds a catalog and
+ * replays a mix of requests over HTTP at each of the configured arrival rates. The arrivals follow an open model:
+ * they are scheduled regardless of how fast the responses come back, as the requests of independent clients do, so
+ * a slow server shows up as latency instead of as a lower request rate.
+ * <p>
+ * Run with {@code mvn -B -Ploadtest -DskipTests verify}; see the loadtest profile of the pom for the settings. The
+ * report is written to {@code target/loadtest} as JSON and HTML.
+ */
+@Log4j2
+public class LoadTest {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestSettings settings;
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    private final SeedData data;
+
+    private final Endpoint[] weightedEndpoints;
+
+    public LoadTest(LoadTestSettings settings, String baseUrl, SeedData data) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.data = data;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        settings.getMix().forEach((endpoint, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                endpoints.add(endpoint);
+            }
+        });
+        this.weightedEndpoints = endpoints.toArray(new Endpoint[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings();
+        String startedAt = OffsetDateTime.now().toString();
+
+        // as arguments, which take precedence over the application.properties of the tests
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.main.banner-mode=off",
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.org.hibernate.type.descriptor.sql=WARN",
+                "--logging.level.edu.uoc.epcsd.productcatalog.loadtest=INFO",
+                // the outbox relay runs as in production, against the stubbed producer
+                "--productcatalog.scheduling.enabled=true",
+                "--productcatalog.kafka.admin.auto-create=false"));
+        arguments.addAll(List.of(args));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductCatalogApplication.class, StubKafkaConfig.class)
+                .run(arguments.toArray(new String[0]));
+
+        LoadTestReport report;
+        try {
+            log.info("Seeding " + settings.getCategories() + " categories, " + settings.getProducts() + " products and " + settings.getItems() + " items");
+            SeedData data = SeedData.create(context, settings);
+
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            report = new LoadTest(settings, baseUrl, data).run(startedAt);
+        } finally {
+            context.close();
+        }
+
+        Path reportDir = Paths.get(settings.getReportDir());
+        Files.createDirectories(reportDir);
+        String fileName = "loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        report.writeJson(reportDir.resolve(fileName + ".json"));
+        report.writeHtml(reportDir.resolve(fileName + ".html"));
+
+        log.info("Sustained rate: " + (report.getSustainedRate() != null ? report.getSustainedRate() + " req/s" : "none of the steps")
+                + "; report written to " + reportDir.resolve(fileName + ".{json,html}").toAbsolutePath());
+    }
+
+    LoadTestReport run(String startedAt) throws InterruptedException {
+        if (!settings.getWarmup().isZero()) {
+            log.info("Warming up at " + settings.getRates().get(0) + " req/s for " + settings.getWarmup());
+            runStep(settings.getRates().get(0), settings.getWarmup());
+        }
+
+        List<LoadTestReport.StepResult> steps = new ArrayList<>();
+        Integer sustainedRate = null;
+        boolean degraded = false;
+        for (int rate : settings.getRates()) {
+            LoadTestReport.StepResult step = runStep(rate, settings.getStepDuration());
+            steps.add(step);
+
+            LoadTestReport.EndpointResult total = step.getTotal();
+            log.info(String.format("%d req/s: achieved %.1f req/s, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, %.2f%% errors",
+                    rate, step.getAchievedRate(), total.getP50Ms(), total.getP95Ms(), total.getP99Ms(), total.getMaxMs(), total.getErrorRate() * 100));
+
+            degraded |= total.getP99Ms() > settings.getP99ThresholdMs() || total.getErrorRate() > settings.getErrorRateThreshold();
+            if (!degraded) {
+                sustainedRate = rate;
+            }
+        }
+
+        return LoadTestReport.builder()
+                .name(settings.getName())
+                .startedAt(startedAt)
+                .settings(describeSettings())
+                .steps(steps)
+                .sustainedRate(sustainedRate)
+                .build();
+    }
+
+    private LoadTestReport.StepResult runStep(int rate, Duration duration) throws InterruptedException {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : settings.getMix().keySet()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Semaphore inFlight = new Semaphore(settings.getMaxInFlight());
+        double meanGapNanos = 1_000_000_000d / rate;
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long next = start;
+        while (next < end) {
+            for (long now = System.nanoTime(); now < next; now = System.nanoTime()) {
+                LockSupport.parkNanos(next - now);
+            }
+
+            Endpoint endpoint = weightedEndpoints[random.nextInt(weightedEndpoints.length)];
+            EndpointStats endpointStats = stats.get(endpoint);
+            long scheduledAt = next;
+            if (inFlight.tryAcquire()) {
+                HttpRequest request = endpoint.request(baseUrl, data, random).timeout(REQUEST_TIMEOUT).build();
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+                    long latency = System.nanoTime() - scheduledAt;
+                    if (e == null) {
+                        endpointStats.record(latency, response.statusCode());
+                    } else {
+                        endpointStats.recordFailure(latency, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                    inFlight.release();
+                });
+            } else {
+                endpointStats.recordSaturated();
+            }
+
+            next += settings.isPoisson() ? (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos) : (long) meanGapNanos;
+        }
+
+        // the step lasts until the last response is back
+        inFlight.acquire(settings.getMaxInFlight());
+        inFlight.release(settings.getMaxInFlight());
+        double durationSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+
+        List<LoadTestReport.EndpointResult> endpoints = new ArrayList<>();
+        Histogram totalLatencies = new Histogram(3);
+        Map<String, Long> totalOutcomes = new LinkedHashMap<>();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            EndpointStats endpointStats = entry.getValue();
+            endpoints.add(LoadTestReport.EndpointResult.of(entry.getKey().getDescription(), endpointStats.getRequests(), endpointStats.getErrors(),
+                    endpointStats.getLatencies(), endpointStats.getOutcomes(), durationSeconds));
+
+            totalLatencies.add(endpointStats.getLatencies());
+            endpointStats.getOutcomes().forEach((outcome, count) -> totalOutcomes.merge(outcome, count, Long::sum));
+            totalRequests += endpointStats.getRequests();
+            totalErrors += endpointStats.getErrors();
+        }
+
+        return LoadTestReport.StepResult.builder()
+                .targetRate(rate)
+                .achievedRate(totalRequests / durationSeconds)
+                .durationSeconds(durationSeconds)
+                .total(LoadTestReport.EndpointResult.of("Total", totalRequests, totalErrors, totalLatencies, totalOutcomes, durationSeconds))
+                .endpoints(endpoints)
+                .build();
+    }
+
+    private Map<String, Object> describeSettings() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("rates", settings.getRates());
+        description.put("stepDuration", settings.getStepDuration().toString());
+        description.put("warmup", settings.getWarmup().toString());
+        description.put("arrival", settings.isPoisson() ? "poisson" : "constant");
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        settings.getMix().forEach((endpoint, weight) -> mix.put(endpoint.getName(), weight));
+        description.put("mix", mix);
+        description.put("maxInFlight", settings.getMaxInFlight());
+        description.put("categories", settings.getCategories());
+        description.put("products", settings.getProducts());
+        description.put("items", settings.getItems());
+        description.put("p99ThresholdMs", settings.getP99ThresholdMs());
+        description.put("errorRateThreshold", settings.getErrorRateThreshold());
+        return description;
+    }
+
+}
@@ -0,0 +1,137 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.Builder;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of a run, written as JSON to compare builds and as an HTML page to read them.
+ */
+@Getter
+@Builder
+public class LoadTestReport {
+
+    private final String name;
+
+    private final String startedAt;
+
+    private final Map<String, Object> settings;
+
+    private final List<StepResult> steps;
+
+    // the highest rate reached, in order, before the p99 latency or the error rate went over their thresholds
+    private final Integer sustainedRate;
+
+    @Getter
+    @Builder
+    public static class StepResult {
+
+        private final int targetRate;
+
+        private final double achievedRate;
+
+        private final double durationSeconds;
+
+        private final EndpointResult total;
+
+        private final List<EndpointResult> endpoints;
+
+    }
+
+    @Getter
+    @Builder
+    public static class EndpointResult {
+
+        private final String endpoint;
+
+        private final long requests;
+
+        private final long errors;
+
+        private final double errorRate;
+
+        private final double throughput;
+
+        private final double meanMs;
+
+        private final double p50Ms;
+
+        private final double p95Ms;
+
+        private final double p99Ms;
+
+        private final double maxMs;
+
+        private final Map<String, Long> outcomes;
+
+        static EndpointResult of(String endpoint, long requests, long errors, Histogram latencies, Map<String, Long> outcomes, double durationSeconds) {
+            return EndpointResult.builder()
+                    .endpoint(endpoint)
+                    .requests(requests)
+                    .errors(errors)
+                    .errorRate(requests == 0 ? 0 : errors / (double) requests)
+                    .throughput(requests / durationSeconds)
+                    .meanMs(latencies.getTotalCount() == 0 ? 0 : latencies.getMean() / 1000)
+                    .p50Ms(latencies.getValueAtPercentile(50) / 1000d)
+                    .p95Ms(latencies.getValueAtPercentile(95) / 1000d)
+                    .p99Ms(latencies.getValueAtPercentile(99) / 1000d)
+                    .maxMs(latencies.getMaxValue() / 1000d)
+                    .outcomes(outcomes)
+                    .build();
+        }
+
+    }
+
+    public void writeJson(Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), this);
+    }
+
+    public void writeHtml(Path file) throws IOException {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Load test ").append(escape(name)).append("</title>\n")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse;margin-bottom:2em}")
+                .append("th,td{border:1px solid #ccc;padding:4px 8px;text-align:right}th:first-child,td:first-child{text-align:left}")
+                .append("</style>\n</head>\n<body>\n")
+                .append("<h1>Load test ").append(escape(name)).append("</h1>\n")
+                .append("<p>Started at ").append(escape(startedAt)).append(". Sustained rate: ")
+                .append(sustainedRate != null ? sustainedRate + " req/s" : "none of the steps").append(".</p>\n");
+
+        html.append("<h2>Settings</h2>\n<table>\n");
+        settings.forEach((key, value) -> html.append("<tr><td>").append(escape(key)).append("</td><td>").append(escape(String.valueOf(value))).append("</td></tr>\n"));
+        html.append("</table>\n");
+
+        for (StepResult step : steps) {
+            html.append(String.format("<h2>%d req/s (achieved %.1f req/s over %.1f s)</h2>\n", step.targetRate, step.achievedRate, step.durationSeconds))
+                    .append("<table>\n<tr><th>Endpoint</th><th>Requests</th><th>Throughput (req/s)</th><th>Errors</th><th>Error rate</th>")
+                    .append("<th>Mean (ms)</th><th>p50 (ms)</th><th>p95 (ms)</th><th>p99 (ms)</th><th>Max (ms)</th><th>Outcomes</th></tr>\n");
+            List<EndpointResult> rows = new ArrayList<>(step.endpoints);
+            rows.add(step.total);
+            for (EndpointResult row : rows) {
+                html.append("<tr><td>").append(escape(row.endpoint)).append("</td>")
+                        .append(String.format("<td>%d</td><td>%.1f</td><td>%d</td><td>%.2f%%</td><td>%.2f</td><td>%.2f</td><td>%.2f</td><td>%.2f</td><td>%.2f</td>",
+                                row.requests, row.throughput, row.errors, row.errorRate * 100, row.meanMs, row.p50Ms, row.p95Ms, row.p99Ms, row.maxMs))
+                        .append("<td>").append(escape(String.valueOf(row.outcomes))).append("</td></tr>\n");
+            }
+            html.append("</table>\n");
+        }
+
+        html.append("</body>\n</html>\n");
+        Files.writeString(file, html, StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        return HtmlUtils.htmlEscape(value != null ? value : "");
+    }
+
+}
@@ -0,0 +1,86 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties (see the loadtest profile of the pom).
+ */
+@Getter
+public class LoadTestSettings {
+
+    // a label for the run, such as the commit under test, written in the report
+    private final String name = System.getProperty("loadtest.name", "");
+
+    // the arrival rates, in requests per second, each one held for stepDuration
+    private final List<Integer> rates = parseRates(System.getProperty("loadtest.rates", "50,100,200,400"));
+
+    private final Duration stepDuration = Duration.parse(System.getProperty("loadtest.step-duration", "PT30S"));
+
+    // run at the first rate before measuring, to warm up the JIT, the caches and the connection pools
+    private final Duration warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT10S"));
+
+    // poisson (exponential gaps between arrivals, as independent clients produce) or constant
+    private final boolean poisson = !"constant".equalsIgnoreCase(System.getProperty("loadtest.arrival", "poisson"));
+
+    private final Map<Endpoint, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+            "getProduct=50,listProducts=15,getItem=20,createItem=10,updateItemStatus=5"));
+
+    // beyond this many requests waiting for a response the client is saturated, and new arrivals count as errors
+    private final int maxInFlight = positive("loadtest.max-in-flight", 1000);
+
+    private final int categories = positive("loadtest.categories", 20);
+
+    private final int products = positive("loadtest.products", 1000);
+
+    private final int items = positive("loadtest.items", 10000);
+
+    // the highest rate meeting both is reported as the sustained rate
+    private final double p99ThresholdMs = Double.parseDouble(System.getProperty("loadtest.p99-threshold-ms", "100"));
+
+    private final double errorRateThreshold = Double.parseDouble(System.getProperty("loadtest.error-rate-threshold", "0.01"));
+
+    private final String reportDir = System.getProperty("loadtest.report-dir", "target/loadtest");
+
+    private static int positive(String property, int defaultValue) {
+        int value = Integer.getInteger(property, defaultValue);
+        if (value < 1) {
+            throw new IllegalArgumentException(property + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    private static List<Integer> parseRates(String value) {
+        List<Integer> rates = new ArrayList<>();
+        for (String rate : value.split(",")) {
+            int parsed = Integer.parseInt(rate.trim());
+            if (parsed < 1) {
+                throw new IllegalArgumentException("Every rate must be positive: " + value);
+            }
+            rates.add(parsed);
+        }
+        return Collections.unmodifiableList(rates);
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String entry : value.split(",")) {
+            String[] weight = entry.split("=");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException("The mix must be a list of endpoint=weight: " + value);
+            }
+            mix.put(Endpoint.fromName(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() < 1) {
+            throw new IllegalArgumentException("The mix needs a positive weight: " + value);
+        }
+        return Collections.unmodifiableMap(mix);
+    }
+
+}
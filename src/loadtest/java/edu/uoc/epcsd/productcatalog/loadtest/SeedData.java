@@ -0,0 +1,104 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.ItemService;
+import edu.uoc.epcsd.productcatalog.services.NewItem;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The catalog the load runs against: top-level categories with a subcategory each, products spread over them and
+ * the items of those products. The requests pick their targets among these at random.
+ */
+public class SeedData {
+
+    private static final int ITEM_BATCH_SIZE = 1000;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    private final List<String> productNames = new ArrayList<>();
+
+    private final List<String> serialNumbers = new ArrayList<>();
+
+    private final AtomicLong newSerialNumbers = new AtomicLong();
+
+    // whether each seeded item is operational, as set by the load, so that every status change is a real one
+    private final ConcurrentMap<String, Boolean> operational = new ConcurrentHashMap<>();
+
+    public static SeedData create(ApplicationContext context, LoadTestSettings settings) throws ProductException {
+        CategoryService categoryService = context.getBean(CategoryService.class);
+        ProductService productService = context.getBean(ProductService.class);
+        ItemService itemService = context.getBean(ItemService.class);
+
+        SeedData data = new SeedData();
+        List<Long> leafCategoryIds = new ArrayList<>();
+        for (int i = 0; i < settings.getCategories(); i++) {
+            Category category = categoryService.createCategory(null, "Categoría " + i, "Descripción de la categoría " + i);
+            Category subcategory = categoryService.createCategory(category.getId(), "Subcategoría " + i, "Descripción de la subcategoría " + i);
+            data.categoryIds.add(category.getId());
+            leafCategoryIds.add(category.getId());
+            leafCategoryIds.add(subcategory.getId());
+        }
+
+        for (int i = 0; i < settings.getProducts(); i++) {
+            Product product = productService.createProduct(leafCategoryIds.get(i % leafCategoryIds.size()), "Producto " + i,
+                    "Descripción del producto " + i, 10.0 + i % 50, "Marca " + i % 20, "Modelo " + i);
+            data.productIds.add(product.getId());
+            data.productNames.add(product.getName());
+        }
+
+        List<NewItem> batch = new ArrayList<>(ITEM_BATCH_SIZE);
+        for (int i = 0; i < settings.getItems(); i++) {
+            String serialNumber = String.format("SN-%08d", i);
+            batch.add(new NewItem(data.productIds.get(i % data.productIds.size()), serialNumber));
+            data.serialNumbers.add(serialNumber);
+            data.operational.put(serialNumber, true);
+            if (batch.size() == ITEM_BATCH_SIZE || i == settings.getItems() - 1) {
+                itemService.createItems(batch);
+                batch.clear();
+            }
+        }
+
+        return data;
+    }
+
+    Long randomCategoryId(ThreadLocalRandom random) {
+        return categoryIds.get(random.nextInt(categoryIds.size()));
+    }
+
+    Long randomProductId(ThreadLocalRandom random) {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+
+    String randomProductName(ThreadLocalRandom random) {
+        return productNames.get(random.nextInt(productNames.size()));
+    }
+
+    String randomSerialNumber(ThreadLocalRandom random) {
+        return serialNumbers.get(random.nextInt(serialNumbers.size()));
+    }
+
+    // the status to set on the item, the opposite of the last one; two changes of the same item at once may still
+    // collide and be rejected
+    boolean toggleOperational(String serialNumber) {
+        return operational.compute(serialNumber, (key, value) -> value == null || !value);
+    }
+
+    // the items created by the load itself
+    String newSerialNumber() {
+        return "LT-" + newSerialNumbers.incrementAndGet();
+    }
+
+}
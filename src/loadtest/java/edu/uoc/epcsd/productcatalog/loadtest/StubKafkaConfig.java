@@ -0,0 +1,74 @@
+package edu.uoc.epcsd.productcatalog.loadtest;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+
+/**
+ * Replaces every Kafka producer factory of the application with one whose producer acknowledges each record at
+ * once, so the outbox relay and the catalog change publisher run as usual without a broker.
+ */
+@Configuration
+public class StubKafkaConfig {
+
+    @Bean
+    public static BeanPostProcessor stubKafkaProducers() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof ProducerFactory ? new StubProducerFactory<>() : bean;
+            }
+        };
+    }
+
+    private static class StubProducerFactory<K, V> implements ProducerFactory<K, V> {
+
+        private final Producer<K, V> producer = new StubProducer<>();
+
+        @Override
+        public Producer<K, V> createProducer() {
+            return producer;
+        }
+
+    }
+
+    /**
+     * A {@link MockProducer} that completes every send, keeps no history and ignores {@code close()}, which the
+     * template calls after each send.
+     */
+    private static class StubProducer<K, V> extends MockProducer<K, V> {
+
+        @SuppressWarnings("unchecked")
+        StubProducer() {
+            super(true, (Serializer<K>) new StringSerializer(), (topic, value) -> new byte[0]);
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+            Future<RecordMetadata> future = super.send(record, callback);
+            clear();
+            return future;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+
+    }
+
+}
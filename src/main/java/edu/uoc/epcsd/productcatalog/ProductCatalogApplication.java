@@ -2,10 +2,12 @@ package edu.uoc.epcsd.productcatalog;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
 @EnableJpaRepositories
+@EnableCaching
 public class ProductCatalogApplication {
 
     public static void main(String[] args) {
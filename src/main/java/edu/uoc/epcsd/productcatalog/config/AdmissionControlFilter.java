@@ -0,0 +1,111 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Puts the requests to the catalog endpoints through the {@link AdmissionController}: GET and HEAD requests are
+ * reads, everything else a write. A request turned away gets a 503 with {@code Retry-After}. A request that starts
+ * async processing, such as a streaming response, keeps its slot until the async processing completes.
+ */
+@Component
+@ConditionalOnProperty(name = "productcatalog.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final List<String> CATALOG_PATHS = List.of("/products", "/categories", "/items", "/catalog");
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Value("${productcatalog.admission.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return CATALOG_PATHS.stream().noneMatch(catalogPath -> path.equals(catalogPath) || path.startsWith(catalogPath + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        AdmissionController.Group group = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? AdmissionController.Group.READ
+                : AdmissionController.Group.WRITE;
+
+        AdmissionController.Rejection rejection;
+        try {
+            rejection = admissionController.admit(group);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejection = AdmissionController.Rejection.BULKHEAD_FULL;
+        }
+
+        if (rejection != null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), rejection == AdmissionController.Rejection.OVERLOADED
+                    ? "The service is overloaded, please retry later"
+                    : "Too many concurrent requests, please retry later");
+            return;
+        }
+
+        boolean asyncStarted = false;
+        try {
+            filterChain.doFilter(request, response);
+            asyncStarted = request.isAsyncStarted();
+        } finally {
+            if (asyncStarted) {
+                // a streaming response is still being written, the slot is released once it completes
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(group));
+            } else {
+                admissionController.release(group);
+            }
+        }
+    }
+
+    private class ReleasingAsyncListener implements AsyncListener {
+
+        private final AdmissionController.Group group;
+
+        private ReleasingAsyncListener(AdmissionController.Group group) {
+            this.group = group;
+        }
+
+        // called after onTimeout and onError as well
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admissionController.release(group);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the request started async processing again, keep listening to the new context
+            event.getAsyncContext().addListener(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which requests get in. Reads and writes have bulkheads of their own, so a bulk load of writes cannot take
+ * the threads and connections the reads need. The write limit adapts to the load, growing by one every
+ * {@code adjust-interval} and halving whenever the service looks overloaded: the mean wait for a bulkhead slot went
+ * over {@code target-queue-time}, or the primary connection pool is saturated (callers waiting for a connection, or
+ * {@code pool-saturation} of it in use). While overloaded, writes are turned away without waiting.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "productcatalog.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionController {
+
+    public static final String LIMIT_GAUGE = "productcatalog.admission.limit";
+
+    public static final String IN_FLIGHT_GAUGE = "productcatalog.admission.in.flight";
+
+    public static final String OVERLOADED_GAUGE = "productcatalog.admission.overloaded";
+
+    public static final String QUEUE_TIMER = "productcatalog.admission.queue";
+
+    public static final String REJECTIONS_COUNTER = "productcatalog.admission.rejections";
+
+    public enum Group {
+        READ,
+        WRITE
+    }
+
+    public enum Rejection {
+        BULKHEAD_FULL,
+        OVERLOADED
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Value("${productcatalog.admission.read.max-concurrent:120}")
+    private int readMaxConcurrent;
+
+    @Value("${productcatalog.admission.read.max-wait:PT0.2S}")
+    private Duration readMaxWait;
+
+    @Value("${productcatalog.admission.write.max-concurrent:40}")
+    private int writeMaxConcurrent;
+
+    @Value("${productcatalog.admission.write.min-concurrent:4}")
+    private int writeMinConcurrent;
+
+    @Value("${productcatalog.admission.write.max-wait:PT0.05S}")
+    private Duration writeMaxWait;
+
+    @Value("${productcatalog.admission.target-queue-time:PT0.05S}")
+    private Duration targetQueueTime;
+
+    @Value("${productcatalog.admission.pool-saturation:0.9}")
+    private double poolSaturation;
+
+    @Value("${productcatalog.admission.adjust-interval:PT0.5S}")
+    private Duration adjustInterval;
+
+    private final Map<Group, Bulkhead> bulkheads = new EnumMap<>(Group.class);
+
+    private final Map<Group, Timer> queueTimers = new EnumMap<>(Group.class);
+
+    // the waits for a slot since the last adjustment
+    private final LongAdder queuedNanos = new LongAdder();
+
+    private final LongAdder queued = new LongAdder();
+
+    private final AtomicLong lastAdjustment = new AtomicLong(System.nanoTime());
+
+    private volatile boolean overloaded;
+
+    @PostConstruct
+    public void init() {
+        bulkheads.put(Group.READ, new Bulkhead("read", readMaxConcurrent));
+        bulkheads.put(Group.WRITE, new Bulkhead("write", writeMaxConcurrent));
+
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            Gauge.builder(LIMIT_GAUGE, bulkhead, Bulkhead::getLimit)
+                    .description("Requests of the group admitted at once")
+                    .tag("group", bulkhead.getName())
+                    .register(meterRegistry);
+            Gauge.builder(IN_FLIGHT_GAUGE, bulkhead, Bulkhead::getInFlight)
+                    .description("Requests of the group running")
+                    .tag("group", bulkhead.getName())
+                    .register(meterRegistry);
+        }
+        for (Group group : Group.values()) {
+            queueTimers.put(group, Timer.builder(QUEUE_TIMER)
+                    .description("Time requests waited for a slot in the bulkhead of their group")
+                    .tag("group", bulkheads.get(group).getName())
+                    .register(meterRegistry));
+        }
+        Gauge.builder(OVERLOADED_GAUGE, this, controller -> controller.isOverloaded() ? 1 : 0)
+                .description("Whether writes are being shed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot for a request of the group, to be given back with {@link #release(Group)}.
+     *
+     * @return null when admitted, or why the request was turned away
+     */
+    public Rejection admit(Group group) throws InterruptedException {
+        adjustIfDue();
+
+        if (group == Group.WRITE && overloaded) {
+            return reject(group, Rejection.OVERLOADED);
+        }
+
+        Duration maxWait = group == Group.WRITE ? writeMaxWait : readMaxWait;
+        long waited = bulkheads.get(group).tryAcquire(maxWait.toNanos());
+        if (waited < 0) {
+            queuedNanos.add(maxWait.toNanos());
+            queued.increment();
+            return reject(group, Rejection.BULKHEAD_FULL);
+        }
+
+        queuedNanos.add(waited);
+        queued.increment();
+        queueTimers.get(group).record(waited, TimeUnit.NANOSECONDS);
+        return null;
+    }
+
+    public void release(Group group) {
+        bulkheads.get(group).release();
+    }
+
+    public Bulkhead getBulkhead(Group group) {
+        return bulkheads.get(group);
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    private Rejection reject(Group group, Rejection rejection) {
+        meterRegistry.counter(REJECTIONS_COUNTER, "group", bulkheads.get(group).getName(), "reason", rejection.name().toLowerCase()).increment();
+        return rejection;
+    }
+
+    private void adjustIfDue() {
+        long now = System.nanoTime();
+        long last = lastAdjustment.get();
+        if (now - last < adjustInterval.toNanos() || !lastAdjustment.compareAndSet(last, now)) {
+            return;
+        }
+
+        long count = queued.sumThenReset();
+        long meanQueueNanos = count == 0 ? 0 : queuedNanos.sumThenReset() / count;
+        boolean wasOverloaded = overloaded;
+        overloaded = meanQueueNanos > targetQueueTime.toNanos() || isPoolSaturated();
+
+        Bulkhead writes = bulkheads.get(Group.WRITE);
+        if (overloaded) {
+            writes.setLimit(Math.max(writeMinConcurrent, writes.getLimit() / 2));
+        } else if (writes.getLimit() < writeMaxConcurrent) {
+            writes.setLimit(writes.getLimit() + 1);
+        }
+
+        if (overloaded != wasOverloaded) {
+            log.warn((overloaded ? "Overloaded, shedding writes" : "No longer overloaded, admitting writes")
+                    + " (mean queue time " + TimeUnit.NANOSECONDS.toMillis(meanQueueNanos) + " ms, write limit " + writes.getLimit() + ")");
+        }
+    }
+
+    private boolean isPoolSaturated() {
+        HikariPoolMXBean pool = primaryDataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return false;
+        }
+        return pool.getThreadsAwaitingConnection() > 0 || pool.getActiveConnections() >= poolSaturation * primaryDataSource.getMaximumPoolSize();
+    }
+
+}
@@ -0,0 +1,66 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A concurrency limit for one group of endpoints. A request waits up to a given time for one of the {@code limit}
+ * slots and is turned away otherwise, so a group can never hold more servlet threads and database connections than
+ * its share. The limit can be changed while requests are running: lowering it lets the running ones finish and
+ * admits new ones once fewer than the new limit remain.
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private int limit;
+
+    private int inFlight;
+
+    public Bulkhead(String name, int limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the nanoseconds spent waiting for the slot, or -1 when none was free within {@code maxWaitNanos}
+     */
+    public synchronized long tryAcquire(long maxWaitNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        long remaining = maxWaitNanos;
+        while (inFlight >= limit) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = maxWaitNanos - (System.nanoTime() - start);
+        }
+        inFlight++;
+        return System.nanoTime() - start;
+    }
+
+    public synchronized void release() {
+        inFlight--;
+        // the waiters may be held to a lower limit set meanwhile, so wake them all up to check it
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized void setLimit(int limit) {
+        if (limit > this.limit) {
+            notifyAll();
+        }
+        this.limit = limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+}
@@ -0,0 +1,27 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The application caches, in bounded in-process Caffeine caches. Their statistics are recorded, so they are published
+ * as cache.* metrics. The second-level cache of Hibernate is configured apart, in application.conf.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${productcatalog.cache.product-responses.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}")
+    private String productResponsesSpec;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ProductService.PRODUCT_DETAILS_CACHE);
+        cacheManager.setCacheSpecification(productResponsesSpec);
+        return cacheManager;
+    }
+
+}
@@ -0,0 +1,100 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primary data source is configured as usual through {@code spring.datasource.*}. When
+ * {@code productcatalog.datasource.replica-urls} lists read replicas, which share the primary credentials, the
+ * application data source is a {@link ReplicaRoutingDataSource} that sends read only transactions to them.
+ * <p>
+ * The category tree snapshot is loaded from the primary through a pool of its own, see
+ * {@link #categoryTreeDataSource(DataSourceProperties)}.
+ */
+@Configuration
+public class DataSourceConfig implements DisposableBean {
+
+    public static final String REPLICAS_AVAILABLE_GAUGE = "productcatalog.datasource.replicas.available";
+
+    @Value("${productcatalog.datasource.replica-urls:}")
+    private String[] replicaUrls;
+
+    @Value("${productcatalog.datasource.replica-retry-after:PT10S}")
+    private Duration replicaRetryAfter;
+
+    @Value("${productcatalog.datasource.replica-connection-timeout-ms:1000}")
+    private long replicaConnectionTimeoutMs;
+
+    @Value("${productcatalog.datasource.category-tree-pool-size:1}")
+    private int categoryTreePoolSize;
+
+    private final List<HikariDataSource> replicas = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * The category tree is loaded while the caller may already hold a connection of the primary pool, and the callers
+     * queue on the tree lock meanwhile: taking a second connection from that pool could exhaust it. One connection is
+     * enough, since a single thread loads the tree at a time.
+     */
+    @Bean
+    public HikariDataSource categoryTreeDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("category-tree");
+        dataSource.setMaximumPoolSize(categoryTreePoolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, DataSourceProperties properties, MeterRegistry meterRegistry) {
+        if (replicaUrls.length == 0) {
+            return primaryDataSource;
+        }
+
+        for (int i = 0; i < replicaUrls.length; i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(replicaUrls[i]).build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setReadOnly(true);
+            // fail over quickly, and start even when a replica is down
+            replica.setConnectionTimeout(replicaConnectionTimeoutMs);
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaRetryAfter);
+        Gauge.builder(REPLICAS_AVAILABLE_GAUGE, routingDataSource, ReplicaRoutingDataSource::getAvailableReplicas)
+                .description("Read replicas not currently skipped after a connection failure")
+                .register(meterRegistry);
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+}
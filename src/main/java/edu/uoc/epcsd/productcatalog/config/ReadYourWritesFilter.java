@@ -0,0 +1,36 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Reads are served by the replicas, which may lag behind the primary. A client that must see its own writes sends
+ * {@code X-Read-Your-Writes: true} and the reads of that request go to the primary.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!Boolean.parseBoolean(request.getHeader(READ_YOUR_WRITES_HEADER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean previous = ReplicaRoutingDataSource.setPrimaryOnly(true);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setPrimaryOnly(previous);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out connections to the primary, except inside read only transactions, which are spread round robin over the
+ * replicas. A replica that fails to hand out a connection is skipped for {@code retryAfter} and the next one is
+ * tried; with no replica available reads go to the primary. Reads of a thread can be kept on the primary, for
+ * read-your-writes, with {@link #setPrimaryOnly(boolean)}.
+ * <p>
+ * The transaction is only known to be read only once it has begun, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches the connection on the
+ * first statement.
+ */
+@Log4j2
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final Duration retryAfter;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Duration retryAfter) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the previous value, to be restored when done
+     */
+    public static boolean setPrimaryOnly(boolean primaryOnly) {
+        boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(primaryOnly);
+        return previous;
+    }
+
+    /**
+     * Runs the given reads on the primary. The connection of a read only transaction is only fetched on its first
+     * statement, so this must be called before the transaction has run any.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        boolean previous = setPrimaryOnly(true);
+        try {
+            return reads.get();
+        } finally {
+            setPrimaryOnly(previous);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readFromReplica()) {
+            return primary.getConnection();
+        }
+
+        Instant now = clock.instant();
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.isAvailable(now)) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                replica.markDown(now);
+                log.warn("Read replica " + replica.name + " unavailable, skipping it for " + retryAfter, e);
+            }
+        }
+
+        log.debug("No read replica available, reading from the primary");
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections use the credentials of the configured data sources");
+    }
+
+    public int getAvailableReplicas() {
+        Instant now = clock.instant();
+        int available = 0;
+        for (Replica replica : replicas) {
+            if (replica.isAvailable(now)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private static boolean readFromReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !PRIMARY_ONLY.get();
+    }
+
+    private class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile Instant downUntil = Instant.MIN;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        boolean isAvailable(Instant now) {
+            return !now.isBefore(downUntil);
+        }
+
+        void markDown(Instant now) {
+            downUntil = now.plus(retryAfter);
+        }
+
+    }
+
+}
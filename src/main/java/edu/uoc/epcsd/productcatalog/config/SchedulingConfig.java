@@ -0,0 +1,15 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs (such as the outbox relay) can be switched off with {@code productcatalog.scheduling.enabled=false},
+ * in which case they only run when invoked explicitly.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "productcatalog.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,65 @@
+package edu.uoc.epcsd.productcatalog.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every public method of the services as {@code productcatalog.service}, tagged with the class, the method and
+ * the exception thrown ({@code none} on success). Calls a service makes to itself are not proxied, so not timed.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    public static final String SERVICE_TIMER = "productcatalog.service";
+
+    private static final String NO_EXCEPTION = "none";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // building and registering a timer allocates and looks it up by its tags, so the timers of successful calls,
+    // by far the most common, are kept per method
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+    @Around("@within(org.springframework.stereotype.Service) && execution(public * edu.uoc.epcsd.productcatalog.services..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            sample.stop(timer(joinPoint, e.getClass().getSimpleName()));
+            throw e;
+        }
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Timer timer = successTimers.get(method);
+        if (timer == null) {
+            timer = successTimers.computeIfAbsent(method, m -> timer(joinPoint, NO_EXCEPTION));
+        }
+        sample.stop(timer);
+
+        return result;
+    }
+
+    private Timer timer(ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(SERVICE_TIMER)
+                .description("Service method calls")
+                .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+}
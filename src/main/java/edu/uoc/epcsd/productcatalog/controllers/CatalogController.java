@@ -0,0 +1,136 @@
+package edu.uoc.epcsd.productcatalog.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.CatalogImportEvent;
+import edu.uoc.epcsd.productcatalog.services.CatalogExportService;
+import edu.uoc.epcsd.productcatalog.services.CatalogImportProgress;
+import edu.uoc.epcsd.productcatalog.services.CatalogImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@Log4j2
+@RestController
+@RequestMapping("/catalog")
+public class CatalogController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final String GZIP = "gzip";
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${productcatalog.import.batch-size:500}")
+    private int defaultBatchSize;
+
+    // every row of a batch is held in memory and in the persistence context until the batch commits
+    @Value("${productcatalog.import.max-batch-size:5000}")
+    private int maxBatchSize;
+
+    @Operation(summary = "Import categories and products from NDJSON or CSV, reporting progress and failed rows as NDJSON while the input is read")
+    @PostMapping(path = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void importCatalog(@RequestParam(required = false) Integer batchSize,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        log.trace("importCatalog");
+
+        int size = batchSize != null ? batchSize : defaultBatchSize;
+        if (size < 1 || size > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "batchSize must be between 1 and " + maxBatchSize);
+        }
+
+        CatalogImportService.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? CatalogImportService.Format.NDJSON
+                : CatalogImportService.Format.CSV;
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream output = response.getOutputStream();
+
+        CatalogImportProgress summary = catalogImportService.importCatalog(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8),
+                format,
+                size,
+                new CatalogImportService.Listener() {
+
+                    @Override
+                    public void rowFailed(long line, String message) {
+                        write(output, CatalogImportEvent.error(line, message));
+                    }
+
+                    @Override
+                    public void batchCommitted(CatalogImportProgress progress) {
+                        write(output, CatalogImportEvent.fromProgress(CatalogImportEvent.PROGRESS, progress));
+                        try {
+                            response.flushBuffer();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+
+        write(output, CatalogImportEvent.fromProgress(CatalogImportEvent.SUMMARY, summary));
+        response.flushBuffer();
+    }
+
+    @Operation(summary = "Export a consistent snapshot of all categories, products and items as NDJSON, gzipped if the client accepts it")
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.trace("exportCatalog");
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains(GZIP);
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutput = new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE);
+                catalogExportService.exportCatalog(gzipOutput);
+                gzipOutput.finish();
+            } else {
+                catalogExportService.exportCatalog(outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.body(body);
+    }
+
+    private void write(OutputStream output, CatalogImportEvent event) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(event));
+            output.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -1,9 +1,14 @@
 package edu.uoc.epcsd.productcatalog.controllers;
 
 import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateCategoryRequest;
-import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetCategoryResponse;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetCategoryStatsResponse;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetCategoryTreeResponse;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
 import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.CategoryStats;
+import edu.uoc.epcsd.productcatalog.services.CategoryStatsService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +19,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 @Log4j2
@@ -24,14 +30,17 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    @Autowired
+    private CategoryStatsService categoryStatsService;
+
     @Operation(summary = "Get all categories and filter by name or description")
     @GetMapping("/")
     @ResponseStatus(HttpStatus.OK)
-    public List<Category> getAllCategories(@RequestParam(required = false) String name,
-                                           @RequestParam(required = false) String description) {
+    public ResponseEntity<List<GetCategoryResponse>> getAllCategories(@RequestParam(required = false) String name,
+                                                                      @RequestParam(required = false) String description) {
         log.trace("getAllCategories");
 
-        return categoryService.findAll(name, description);
+        return withListETag(categoryService.findAll(name, description));
     }
 
     @Operation(summary = "create category")
@@ -63,9 +72,55 @@ public class CategoryController {
     @Operation(summary = "Get all categories by parent category")
     @GetMapping("/{id}/subcategories")
     @ResponseStatus(HttpStatus.OK)
-    public List<Category> getAllCategoriesByParentCategory(@PathVariable Long id) {
+    public ResponseEntity<List<GetCategoryResponse>> getAllCategoriesByParentCategory(@PathVariable Long id) {
         log.trace("getAllCategoriesByParentCategory");
 
-        return categoryService.findAllByParentCategory(id);
+        return withListETag(categoryService.findAllByParentCategory(id));
+    }
+
+    @Operation(summary = "Get the whole category hierarchy")
+    @GetMapping("/tree")
+    @ResponseStatus(HttpStatus.OK)
+    public List<GetCategoryTreeResponse> getCategoryTree() {
+        log.trace("getCategoryTree");
+
+        return GetCategoryTreeResponse.fromTree(categoryService.getCategoryTree());
+    }
+
+    @Operation(summary = "Get the number of products, the items by status and the daily prices of a category together with all its subcategories")
+    @GetMapping("/{id}/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<GetCategoryStatsResponse> getCategoryStats(@PathVariable Long id) {
+        log.trace("getCategoryStats");
+
+        return categoryStatsService.getStats(id)
+                .map(stats -> ResponseEntity.ok().body(GetCategoryStatsResponse.fromDomain(stats)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get the statistics of every category, each one including all its subcategories, parents first")
+    @GetMapping("/stats")
+    @ResponseStatus(HttpStatus.OK)
+    public List<GetCategoryStatsResponse> getAllCategoryStats() {
+        log.trace("getAllCategoryStats");
+
+        List<CategoryStats> stats = categoryStatsService.getAllStats();
+        List<GetCategoryStatsResponse> response = new ArrayList<>(stats.size());
+        for (CategoryStats categoryStats : stats) {
+            response.add(GetCategoryStatsResponse.fromDomain(categoryStats));
+        }
+        return response;
+    }
+
+    // a matching If-None-Match is answered with 304 without writing the body
+    private ResponseEntity<List<GetCategoryResponse>> withListETag(List<CategorySummary> categories) {
+        List<GetCategoryResponse> responses = new ArrayList<>(categories.size());
+        for (CategorySummary category : categories) {
+            responses.add(GetCategoryResponse.fromSummary(category));
+        }
+
+        return ResponseEntity.ok()
+                .eTag(ETags.ofList(responses, GetCategoryResponse::getId, GetCategoryResponse::getVersion))
+                .body(responses);
     }
 }
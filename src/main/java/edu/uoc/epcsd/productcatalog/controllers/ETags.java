@@ -0,0 +1,63 @@
+package edu.uoc.epcsd.productcatalog.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Strong ETags built from entity versions, so they can be compared without serializing (or even loading) the
+ * representation they stand for.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String ofVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header matches the given ETag, using the weak comparison RFC 7232 requires
+     * for this header.
+     */
+    static boolean matches(List<String> ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ETag of a list response: a digest of the id and version of every element, in list order, so it changes when
+     * an element is added, removed, reordered or updated.
+     */
+    static <T> String ofList(Collection<T> elements, Function<T, Object> id, Function<T, Long> version) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (T element : elements) {
+            digest.update((id.apply(element) + ":" + version.apply(element) + ";").getBytes(StandardCharsets.UTF_8));
+        }
+
+        // 128 bits are plenty to tell versions of the same list apart
+        byte[] hash = digest.digest();
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+    }
+
+}
@@ -1,48 +1,150 @@
 package edu.uoc.epcsd.productcatalog.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateItemBatchResponse;
 import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateItemRequest;
-import edu.uoc.epcsd.productcatalog.entities.Item;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetItemResponse;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetItemStatusChangeResponse;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatusChange;
 import edu.uoc.epcsd.productcatalog.exceptions.MissingProductException;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
+import edu.uoc.epcsd.productcatalog.services.ItemCreationResult;
+import edu.uoc.epcsd.productcatalog.services.ItemHistoryService;
 import edu.uoc.epcsd.productcatalog.services.ItemService;
+import edu.uoc.epcsd.productcatalog.services.NewItem;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Log4j2
 @RestController
 @RequestMapping("/items")
 public class ItemController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private ItemService itemService;
 
-    @Operation(summary = "Get all items")
+    @Autowired
+    private ItemHistoryService itemHistoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Operation(summary = "Get a page of items ordered by serial number, starting after the given serial number and possibly filtered by status or product")
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    public List<Item> getAllItems() {
+    public ResponseEntity<List<GetItemResponse>> getAllItems(@RequestParam(required = false) String after,
+                                                             @RequestParam(defaultValue = "100") int limit,
+                                                             @RequestParam(required = false) ItemStatus status,
+                                                             @RequestParam(required = false) Long productId) {
         log.trace("getAllItems");
 
-        return itemService.findAll();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<GetItemResponse> items = new ArrayList<>(limit);
+        for (ItemSummary item : itemService.findPage(after, limit, status, productId)) {
+            items.add(GetItemResponse.fromSummary(item));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() == limit) {
+            URI next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", items.get(items.size() - 1).getSerialNumber())
+                    .build()
+                    .encode()
+                    .toUri();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+
+        return response.body(items);
+    }
+
+    @Operation(summary = "Stream all items as newline delimited JSON, possibly filtered by status or product")
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllItems(@RequestParam(required = false) ItemStatus status,
+                                                                @RequestParam(required = false) Long productId) {
+        log.trace("streamAllItems");
+
+        // the generator buffers rows itself, so there is no need to flush after every single one
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            itemService.streamAll(status, productId, item -> {
+                try {
+                    writer.writeValue(generator, GetItemResponse.fromSummary(item));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+
+        return ResponseEntity.ok().body(body);
+    }
+
+    @Operation(summary = "Get the status changes of an item within [from, to), oldest first; by default its whole history")
+    @GetMapping("/{serialNumber}/history")
+    @ResponseStatus(HttpStatus.OK)
+    public List<GetItemStatusChangeResponse> getItemHistory(@PathVariable @NotNull String serialNumber,
+                                                            @RequestParam(required = false) Instant from,
+                                                            @RequestParam(required = false) Instant to) {
+        log.trace("getItemHistory");
+
+        List<GetItemStatusChangeResponse> history = new ArrayList<>();
+        for (ItemStatusChange change : itemHistoryService.getTimeline(serialNumber, from != null ? from : Instant.EPOCH, to != null ? to : Instant.now())) {
+            history.add(GetItemStatusChangeResponse.fromDomain(change));
+        }
+        return history;
     }
 
     @Operation(summary = "Get item by id")
     @GetMapping("/{serialNumber}")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<Item> getItemById(@PathVariable @NotNull String serialNumber) {
+    public ResponseEntity<GetItemResponse> getItemById(@PathVariable @NotNull String serialNumber,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch) {
         log.trace("getItemById");
 
-        return itemService.findBySerialNumber(serialNumber).map(item -> ResponseEntity.ok().body(item))
+        // a conditional request only needs the version of the item to be answered with 304
+        if (ifNoneMatch != null) {
+            Optional<String> eTag = itemService.findVersion(serialNumber).map(ETags::ofVersion);
+            if (eTag.isPresent() && ETags.matches(ifNoneMatch, eTag.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag.get()).build();
+            }
+        }
+
+        return itemService.findSummaryBySerialNumber(serialNumber)
+                .map(item -> ResponseEntity.ok().eTag(ETags.ofVersion(item.getVersion())).body(GetItemResponse.fromSummary(item)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -67,6 +169,40 @@ public class ItemController {
         return ResponseEntity.created(uri).body(serialNumber);
     }
 
+    @Operation(summary = "Create items in bulk, reporting for each one whether it was created, was a duplicate or referenced an unknown product")
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<CreateItemBatchResponse> createItems(@RequestBody List<CreateItemRequest> createItemRequests) {
+        log.trace("createItems");
+
+        log.trace("Creating " + createItemRequests.size() + " items");
+        List<NewItem> newItems = new ArrayList<>(createItemRequests.size());
+        for (CreateItemRequest createItemRequest : createItemRequests) {
+            newItems.add(new NewItem(createItemRequest.getProductId(), createItemRequest.getSerialNumber()));
+        }
+
+        List<ItemCreationResult> results;
+        try {
+            results = itemService.createItems(newItems);
+        } catch (ProductException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // another request registered some of the same serial numbers in the meantime
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Some items were created concurrently, please retry", e);
+        }
+
+        List<CreateItemBatchResponse> response = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            response.add(CreateItemBatchResponse.builder()
+                    .serialNumber(createItemRequests.get(i).getSerialNumber())
+                    .productId(createItemRequests.get(i).getProductId())
+                    .result(results.get(i))
+                    .build());
+        }
+
+        return response;
+    }
+
     @Operation(summary = "Update item status")
     @PatchMapping("/{serialNumber}/status")
     @ResponseStatus(HttpStatus.OK)
@@ -80,6 +216,8 @@ public class ItemController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (MissingProductException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The item was modified concurrently, please retry", e);
         }
 
         return ResponseEntity.ok().body(serialNumber);
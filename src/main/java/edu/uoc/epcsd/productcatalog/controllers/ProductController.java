@@ -2,9 +2,16 @@ package edu.uoc.epcsd.productcatalog.controllers;
 
 
 import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateProductRequest;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetProductAvailabilityResponse;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.GetProductDowntimeResponse;
 import edu.uoc.epcsd.productcatalog.controllers.dtos.GetProductResponse;
-import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.SearchProductsResponse;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductDowntime;
+import edu.uoc.epcsd.productcatalog.services.AvailabilityService;
+import edu.uoc.epcsd.productcatalog.services.ItemHistoryService;
+import edu.uoc.epcsd.productcatalog.services.ProductAvailability;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchResult;
 import edu.uoc.epcsd.productcatalog.services.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.extern.log4j.Log4j2;
@@ -18,24 +25,60 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.constraints.NotNull;
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Log4j2
 @RestController
 @RequestMapping("/products")
 public class ProductController {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ItemHistoryService itemHistoryService;
+
     @Operation(summary = "Get all products and posible filter by name or category/subcategory")
     @GetMapping()
     @ResponseStatus(HttpStatus.OK)
-    public List<Product> getAllProducts(@RequestParam(required = false) String name,
-                                        @RequestParam(required = false) Long categoryId) {
+    public List<GetProductResponse> getAllProducts(@RequestParam(required = false) String name,
+                                                   @RequestParam(required = false) Long categoryId,
+                                                   @RequestParam(defaultValue = "false") boolean includeSubcategories) {
         log.trace("getAllProducts");
 
-        return productService.findAll(name, categoryId);
+        return GetProductResponse.fromDetails(productService.findAll(name, categoryId, includeSubcategories));
+    }
+
+    @Operation(summary = "Full-text search over product name, description, brand and model, best matches first")
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public SearchProductsResponse searchProducts(@RequestParam String q,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        log.trace("searchProducts");
+
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must not be negative and size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+
+        ProductSearchResult result = productService.search(q, page, size);
+
+        return SearchProductsResponse.builder()
+                .query(q)
+                .total(result.getTotal())
+                .page(page)
+                .size(size)
+                .products(GetProductResponse.fromDetails(result.getProducts()))
+                .build();
     }
 
     @Operation(summary = "Get product by id")
@@ -44,10 +87,70 @@ public class ProductController {
     public ResponseEntity<GetProductResponse> getProductById(@PathVariable @NotNull Long productId) {
         log.trace("getProductById");
 
-        return productService.findById(productId).map(product -> ResponseEntity.ok().body(GetProductResponse.fromDomain(product)))
+        // the product usually comes from the cache, and a matching If-None-Match is answered with 304 without
+        // writing the body
+        return productService.findDetailsById(productId)
+                .map(product -> ResponseEntity.ok().eTag(ETags.ofVersion(product.getVersion())).body(GetProductResponse.fromDetails(product)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get the number of operational and non-operational units of a product")
+    @GetMapping("/{productId}/availability")
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<GetProductAvailabilityResponse> getProductAvailability(@PathVariable @NotNull Long productId) {
+        log.trace("getProductAvailability");
+
+        return productService.findDetailsById(productId)
+                .map(product -> ResponseEntity.ok().body(GetProductAvailabilityResponse.fromDomain(availabilityService.getAvailability(productId))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get the availability of the given products, or of every product with units when none is given")
+    @GetMapping("/availability")
+    @ResponseStatus(HttpStatus.OK)
+    public Map<Long, GetProductAvailabilityResponse> getProductsAvailability(@RequestParam(required = false) List<Long> productIds) {
+        log.trace("getProductsAvailability");
+
+        Map<Long, ProductAvailability> availability = productIds != null
+                ? availabilityService.getAvailability(productIds)
+                : availabilityService.getAllAvailability();
+
+        Map<Long, GetProductAvailabilityResponse> response = new LinkedHashMap<>();
+        availability.forEach((productId, productAvailability) -> response.put(productId, GetProductAvailabilityResponse.fromDomain(productAvailability)));
+        return response;
+    }
+
+    @Operation(summary = "Get the time the units of a product were non-operational within [from, to)")
+    @GetMapping("/{productId}/downtime")
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<GetProductDowntimeResponse> getProductDowntime(@PathVariable @NotNull Long productId,
+                                                                         @RequestParam Instant from,
+                                                                         @RequestParam Instant to) {
+        log.trace("getProductDowntime");
+
+        checkPeriod(from, to);
+
+        return productService.findDetailsById(productId)
+                .map(product -> ResponseEntity.ok().body(new GetProductDowntimeResponse(productId, from, to, itemHistoryService.getDowntimeMillis(productId, from, to))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @Operation(summary = "Get the downtime within [from, to) of every product that had non-operational units in that period")
+    @GetMapping("/downtime")
+    @ResponseStatus(HttpStatus.OK)
+    public List<GetProductDowntimeResponse> getProductsDowntime(@RequestParam Instant from,
+                                                                @RequestParam Instant to) {
+        log.trace("getProductsDowntime");
+
+        checkPeriod(from, to);
+
+        List<GetProductDowntimeResponse> response = new ArrayList<>();
+        for (ProductDowntime downtime : itemHistoryService.getDowntime(from, to)) {
+            response.add(new GetProductDowntimeResponse(downtime.getProductId(), from, to, downtime.getDowntimeMillis()));
+        }
+        return response;
+    }
+
     @Operation(summary = "Create product")
     @PostMapping
     public ResponseEntity<Long> createProduct(@RequestBody CreateProductRequest createProductRequest) {
@@ -88,4 +191,9 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
+    private static void checkPeriod(Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+    }
 }
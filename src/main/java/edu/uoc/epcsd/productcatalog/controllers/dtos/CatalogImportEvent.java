@@ -0,0 +1,50 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import edu.uoc.epcsd.productcatalog.services.CatalogImportProgress;
+import lombok.*;
+
+/**
+ * One line of the NDJSON report written while a catalog import runs: a failed row, the progress after a committed
+ * batch or the final summary.
+ */
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class CatalogImportEvent {
+
+    public static final String ERROR = "error";
+
+    public static final String PROGRESS = "progress";
+
+    public static final String SUMMARY = "summary";
+
+    private final String event;
+
+    private final Long line;
+
+    private final String message;
+
+    private final Long processed;
+
+    private final Long created;
+
+    private final Long failed;
+
+    public static CatalogImportEvent error(long line, String message) {
+        return CatalogImportEvent.builder().event(ERROR).line(line).message(message).build();
+    }
+
+    public static CatalogImportEvent fromProgress(String event, CatalogImportProgress progress) {
+        return CatalogImportEvent.builder()
+                .event(event)
+                .processed(progress.getProcessed())
+                .created(progress.getCreated())
+                .failed(progress.getFailed())
+                .build();
+    }
+
+}
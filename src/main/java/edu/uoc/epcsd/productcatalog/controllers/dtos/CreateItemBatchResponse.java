@@ -0,0 +1,19 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import edu.uoc.epcsd.productcatalog.services.ItemCreationResult;
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class CreateItemBatchResponse {
+
+    private final String serialNumber;
+
+    private final Long productId;
+
+    private final ItemCreationResult result;
+
+}
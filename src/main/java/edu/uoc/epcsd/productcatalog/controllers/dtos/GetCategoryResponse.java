@@ -0,0 +1,47 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetCategoryResponse {
+
+    private final Long id;
+
+    @JsonIgnore
+    private final Long version;
+
+    private final String name;
+
+    private final String description;
+
+    private final CategoryReference parent;
+
+    public static GetCategoryResponse fromSummary(CategorySummary category) {
+        return GetCategoryResponse.builder()
+                .id(category.getId())
+                .version(category.getVersion())
+                .name(category.getName())
+                .description(category.getDescription())
+                .parent(category.getParentId() != null ? new CategoryReference(category.getParentId(), category.getParentName()) : null)
+                .build();
+    }
+
+    @ToString
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static final class CategoryReference {
+
+        private final Long id;
+
+        private final String name;
+
+    }
+
+}
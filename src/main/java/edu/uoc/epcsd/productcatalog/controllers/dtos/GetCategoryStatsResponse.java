@@ -0,0 +1,45 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.services.CategoryStats;
+import lombok.*;
+
+import java.util.Map;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetCategoryStatsResponse {
+
+    private final Long categoryId;
+
+    private final String name;
+
+    private final Long parentId;
+
+    private final long products;
+
+    private final Map<ItemStatus, Long> items;
+
+    private final Double minDailyPrice;
+
+    private final Double maxDailyPrice;
+
+    private final Double avgDailyPrice;
+
+    public static GetCategoryStatsResponse fromDomain(CategoryStats stats) {
+        return GetCategoryStatsResponse.builder()
+                .categoryId(stats.getCategoryId())
+                .name(stats.getName())
+                .parentId(stats.getParentId())
+                .products(stats.getProducts())
+                .items(stats.getItems())
+                .minDailyPrice(stats.getMinDailyPrice())
+                .maxDailyPrice(stats.getMaxDailyPrice())
+                .avgDailyPrice(stats.getAvgDailyPrice())
+                .build();
+    }
+
+}
@@ -0,0 +1,41 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import edu.uoc.epcsd.productcatalog.services.CategoryTree;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetCategoryTreeResponse {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String description;
+
+    private final List<GetCategoryTreeResponse> children;
+
+    public static List<GetCategoryTreeResponse> fromTree(CategoryTree tree) {
+        return fromNodes(tree, tree.getRoots());
+    }
+
+    private static List<GetCategoryTreeResponse> fromNodes(CategoryTree tree, List<CategoryTree.Node> nodes) {
+        List<GetCategoryTreeResponse> responses = new ArrayList<>(nodes.size());
+        for (CategoryTree.Node node : nodes) {
+            responses.add(GetCategoryTreeResponse.builder()
+                    .id(node.getId())
+                    .name(node.getName())
+                    .description(node.getDescription())
+                    .children(fromNodes(tree, tree.getChildren(node.getId())))
+                    .build());
+        }
+        return responses;
+    }
+
+}
@@ -0,0 +1,45 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetItemResponse {
+
+    private final String serialNumber;
+
+    @JsonIgnore
+    private final Long version;
+
+    private final ItemStatus status;
+
+    private final ProductReference product;
+
+    public static GetItemResponse fromSummary(ItemSummary item) {
+        return GetItemResponse.builder()
+                .serialNumber(item.getSerialNumber())
+                .version(item.getVersion())
+                .status(item.getStatus())
+                .product(new ProductReference(item.getProductId(), item.getProductName()))
+                .build();
+    }
+
+    @ToString
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static final class ProductReference {
+
+        private final Long id;
+
+        private final String name;
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatusChange;
+import lombok.*;
+
+import java.time.Instant;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetItemStatusChangeResponse {
+
+    private final ItemStatus status;
+
+    private final Instant changedAt;
+
+    public static GetItemStatusChangeResponse fromDomain(ItemStatusChange change) {
+        return GetItemStatusChangeResponse.builder()
+                .status(change.getStatus())
+                .changedAt(change.getChangedAt())
+                .build();
+    }
+
+}
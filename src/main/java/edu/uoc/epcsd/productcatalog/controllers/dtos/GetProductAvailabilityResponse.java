@@ -0,0 +1,27 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import edu.uoc.epcsd.productcatalog.services.ProductAvailability;
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetProductAvailabilityResponse {
+
+    private final Long productId;
+
+    private final long operational;
+
+    private final long nonOperational;
+
+    public static GetProductAvailabilityResponse fromDomain(ProductAvailability availability) {
+        return GetProductAvailabilityResponse.builder()
+                .productId(availability.getProductId())
+                .operational(availability.getOperational())
+                .nonOperational(availability.getNonOperational())
+                .build();
+    }
+
+}
@@ -0,0 +1,25 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Time the units of a product spent non-operational within [from, to), added up over all the units.
+ */
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class GetProductDowntimeResponse {
+
+    private final Long productId;
+
+    private final Instant from;
+
+    private final Instant to;
+
+    private final long downtimeMillis;
+
+}
@@ -1,8 +1,12 @@
 package edu.uoc.epcsd.productcatalog.controllers.dtos;
 
-import edu.uoc.epcsd.productcatalog.entities.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.uoc.epcsd.productcatalog.services.ProductDetails;
 import lombok.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ToString
 @Getter
 @Setter
@@ -13,6 +17,9 @@ public final class GetProductResponse {
 
     private final Long id;
 
+    @JsonIgnore
+    private final Long version;
+
     private final String name;
 
     private final String description;
@@ -23,18 +30,34 @@ public final class GetProductResponse {
 
     private final String model;
 
+    private final Long categoryId;
+
     private final String categoryName;
 
-    public static GetProductResponse fromDomain(Product product) {
+    // category names from the root of the hierarchy down to the product category
+    private final List<String> categoryPath;
+
+    public static GetProductResponse fromDetails(ProductDetails product) {
         return GetProductResponse.builder()
                 .id(product.getId())
+                .version(product.getVersion())
                 .name(product.getName())
                 .description(product.getDescription())
                 .dailyPrice(product.getDailyPrice())
                 .brand(product.getBrand())
                 .model(product.getModel())
-                .categoryName(product.getCategory().getName())
+                .categoryId(product.getCategoryId())
+                .categoryName(product.getCategoryName())
+                .categoryPath(product.getCategoryPath())
                 .build();
     }
 
+    public static List<GetProductResponse> fromDetails(List<ProductDetails> products) {
+        List<GetProductResponse> responses = new ArrayList<>(products.size());
+        for (ProductDetails product : products) {
+            responses.add(fromDetails(product));
+        }
+        return responses;
+    }
+
 }
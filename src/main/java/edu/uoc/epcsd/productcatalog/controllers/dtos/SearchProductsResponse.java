@@ -0,0 +1,24 @@
+package edu.uoc.epcsd.productcatalog.controllers.dtos;
+
+import lombok.*;
+
+import java.util.List;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class SearchProductsResponse {
+
+    private final String query;
+
+    private final long total;
+
+    private final int page;
+
+    private final int size;
+
+    private final List<GetProductResponse> products;
+
+}
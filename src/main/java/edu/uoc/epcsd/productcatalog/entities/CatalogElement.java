@@ -14,10 +14,17 @@ import javax.persistence.*;
 @MappedSuperclass
 public abstract class CatalogElement {
 
+    // a pooled sequence (instead of identity columns) lets Hibernate assign ids before inserting, so inserts can be
+    // batched and a new category can be referenced before it is flushed
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_element_seq")
+    @SequenceGenerator(name = "catalog_element_seq", sequenceName = "catalog_element_seq", allocationSize = 50)
     private Long id;
 
+    // optimistic locking; also the source of the ETags of the catalog read endpoints
+    @Version
+    private Long version;
+
     @Column(name = "name", nullable = false)
     private String name;
 
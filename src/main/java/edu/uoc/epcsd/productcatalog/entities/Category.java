@@ -3,13 +3,18 @@ package edu.uoc.epcsd.productcatalog.entities;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
-import javax.persistence.OneToMany;
+import javax.persistence.*;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_category_name", columnNames = "name"),
+        indexes = @Index(name = "idx_category_parent", columnList = "parent_id"))
+// reference data, read on every product and category lookup and rarely written: kept in the second-level cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @ToString
 @Getter
 @Setter
@@ -18,7 +23,7 @@ import java.util.List;
 @NoArgsConstructor
 public class Category extends CatalogElement {
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Category parent;
 
     @JsonIgnore
@@ -0,0 +1,47 @@
+package edu.uoc.epcsd.productcatalog.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * The number of items in a status of the products directly in a category. Every category gets a row per status,
+ * with a zero total, when it is created; the transactions that create items or change their status then add to the
+ * totals, so the counts are always those of the committed items.
+ */
+@Entity
+@IdClass(CategoryItemCount.Key.class)
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryItemCount {
+
+    @Id
+    @Column(name = "categoryId", nullable = false)
+    private Long categoryId;
+
+    @Id
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ItemStatus status;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private Long categoryId;
+
+        private ItemStatus status;
+
+    }
+
+}
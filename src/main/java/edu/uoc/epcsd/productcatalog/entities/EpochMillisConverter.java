@@ -0,0 +1,24 @@
+package edu.uoc.epcsd.productcatalog.entities;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.time.Instant;
+
+/**
+ * Stores instants as milliseconds since the epoch, so durations can be computed with plain arithmetic in any
+ * database.
+ */
+@Converter
+public class EpochMillisConverter implements AttributeConverter<Instant, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : null;
+    }
+
+    @Override
+    public Instant convertToEntityAttribute(Long epochMillis) {
+        return epochMillis != null ? Instant.ofEpochMilli(epochMillis) : null;
+    }
+
+}
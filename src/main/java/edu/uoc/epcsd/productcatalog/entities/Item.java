@@ -5,6 +5,11 @@ import lombok.*;
 import javax.persistence.*;
 
 @Entity
+// the list filters are equality on one column and keyset on the serial number
+@Table(indexes = {
+        @Index(name = "idx_item_product", columnList = "product_id, serialNumber"),
+        @Index(name = "idx_item_status", columnList = "status, serialNumber")
+})
 @ToString
 @Getter
 @Setter
@@ -18,10 +23,14 @@ public class Item {
     @Column(name = "serialNumber", nullable = false, unique = true)
     private String serialNumber;
 
+    // optimistic locking, so concurrent status changes cannot overwrite each other; also the source of the item ETag
+    @Version
+    private Long version;
+
     @Column(name = "status", nullable = false)
     @Enumerated(EnumType.STRING)
     private ItemStatus status;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Product product;
 }
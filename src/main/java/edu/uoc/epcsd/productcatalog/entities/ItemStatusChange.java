@@ -0,0 +1,44 @@
+package edu.uoc.epcsd.productcatalog.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * One row per status an item entered, including the initial one. Rows are only ever inserted, and they do not
+ * reference the item nor the product so the history outlives them.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_item_status_change_item", columnList = "serialNumber, changedAt"),
+        @Index(name = "idx_item_status_change_product", columnList = "productId, changedAt")
+})
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemStatusChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "serialNumber", nullable = false)
+    private String serialNumber;
+
+    @Column(name = "productId", nullable = false)
+    private Long productId;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ItemStatus status;
+
+    @Column(name = "changedAt", nullable = false)
+    @Convert(converter = EpochMillisConverter.class)
+    private Instant changedAt;
+
+}
@@ -0,0 +1,41 @@
+package edu.uoc.epcsd.productcatalog.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_outbox_event_pending", columnList = "deliveredAt, id")
+})
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "topic", nullable = false)
+    private String topic;
+
+    @Column(name = "productId", nullable = false)
+    private Long productId;
+
+    @Column(name = "createdAt", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "deliveredAt")
+    private Instant deliveredAt;
+
+    // set by the relay that sent the event and is awaiting its acknowledgement; no other relay sends it before then
+    @Column(name = "claimedUntil")
+    private Instant claimedUntil;
+
+}
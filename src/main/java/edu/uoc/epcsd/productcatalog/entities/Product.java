@@ -4,13 +4,13 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.ManyToOne;
-import javax.persistence.OneToMany;
+import javax.persistence.*;
 import java.util.List;
 
 @Entity
+// the unique constraint also serves the lookups by name; category_id alone needs an index of its own
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_product_name_category", columnNames = {"name", "category_id"}),
+        indexes = @Index(name = "idx_product_category", columnList = "category_id"))
 @ToString
 @Getter
 @Setter
@@ -29,7 +29,7 @@ public class Product extends CatalogElement {
     @Column(name = "model", nullable = false)
     private String model;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Category category;
 
     @JsonIgnore
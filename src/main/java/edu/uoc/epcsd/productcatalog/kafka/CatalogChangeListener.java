@@ -0,0 +1,74 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the changes made by other instances to the state this one keeps in memory. The time from the write to
+ * its invalidation here is recorded as {@code productcatalog.catalog.changes.lag}.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "productcatalog.kafka.catalog-changes.enabled", havingValue = "true", matchIfMissing = true)
+public class CatalogChangeListener {
+
+    public static final String INVALIDATION_LAG_TIMER = "productcatalog.catalog.changes.lag";
+
+    @Autowired
+    private CatalogChangePublisher catalogChangePublisher;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer invalidationLag;
+
+    @PostConstruct
+    public void init() {
+        invalidationLag = Timer.builder(INVALIDATION_LAG_TIMER)
+                .description("Time from a catalog write on another instance to its invalidation on this one")
+                .register(meterRegistry);
+    }
+
+    // every instance reads every partition, assigned by hand: a consumer group per instance would be left behind on
+    // every restart
+    @KafkaListener(
+            topicPartitions = @TopicPartition(
+                    topic = CatalogChangePublisher.CATALOG_CHANGES_TOPIC,
+                    partitions = "0-#{${productcatalog.kafka.catalog-changes.partitions:3} - 1}"),
+            containerFactory = "catalogChangeListenerContainerFactory")
+    public void onChange(CatalogChangeMessage message) {
+        if (catalogChangePublisher.getInstanceId().equals(message.getOrigin())) {
+            return;
+        }
+
+        log.debug("Applying " + message);
+        switch (message.getType()) {
+            case PRODUCT:
+                productService.refreshProduct(message.getId());
+                break;
+            case CATEGORY:
+                categoryService.refreshCategory(message.getId());
+                break;
+        }
+
+        invalidationLag.record(Math.max(0, System.currentTimeMillis() - message.getChangedAt()), TimeUnit.MILLISECONDS);
+    }
+
+}
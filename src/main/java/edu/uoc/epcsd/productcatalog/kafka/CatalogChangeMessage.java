@@ -0,0 +1,35 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import lombok.*;
+
+/**
+ * Announces that a catalog entity was written, so that other instances can drop what they keep in memory about it.
+ */
+@ToString
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeMessage {
+
+    public enum EntityType {
+        PRODUCT,
+        CATEGORY
+    }
+
+    private EntityType type;
+
+    private Long id;
+
+    // the version written, null for deletions
+    private Long version;
+
+    // the instance that made the change, which has already updated its own state
+    private String origin;
+
+    // epoch millis, to measure how long other instances take to apply the change
+    private long changedAt;
+
+}
@@ -0,0 +1,112 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Publishes a {@link CatalogChangeMessage} for every product and category write, once the write is committed, so
+ * that the other instances can evict their caches. Publishing is best effort: nothing waits for the broker, the
+ * template gives up after {@code catalog-changes.max-block-ms} when the broker is unreachable, since the send runs on
+ * the thread that made the write, and while the publisher's own {@link PublishCircuitBreaker} is open changes are not
+ * announced; the expiry of the caches bounds how long an instance may serve a stale entry then.
+ */
+@Log4j2
+@Component
+public class CatalogChangePublisher {
+
+    public static final String CATALOG_CHANGES_TOPIC = KafkaConstants.CATALOG_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.CHANGES;
+
+    public static final String CATALOG_CHANGES_COUNTER = "productcatalog.catalog.changes";
+
+    // absent with productcatalog.kafka.catalog-changes.enabled=false, where no broker is reachable
+    @Autowired(required = false)
+    @Qualifier("catalogChangeKafkaTemplate")
+    private KafkaTemplate<String, CatalogChangeMessage> catalogChangeKafkaTemplate;
+
+    @Autowired
+    @Qualifier(PublishCircuitBreakerConfig.CATALOG_CHANGES_CIRCUIT_BREAKER)
+    private PublishCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // identifies this instance, so it can skip its own changes
+    @Getter
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public void productChanged(Long productId, Long version) {
+        publish(CatalogChangeMessage.EntityType.PRODUCT, productId, version);
+    }
+
+    public void productDeleted(Long productId) {
+        publish(CatalogChangeMessage.EntityType.PRODUCT, productId, null);
+    }
+
+    public void categoryChanged(Long categoryId, Long version) {
+        publish(CatalogChangeMessage.EntityType.CATEGORY, categoryId, version);
+    }
+
+    private void publish(CatalogChangeMessage.EntityType type, Long id, Long version) {
+        if (catalogChangeKafkaTemplate == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(type, id, version);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(type, id, version);
+            }
+        });
+    }
+
+    private void send(CatalogChangeMessage.EntityType type, Long id, Long version) {
+        if (!circuitBreaker.allowRequest()) {
+            countChanges("dropped");
+            return;
+        }
+
+        CatalogChangeMessage message = CatalogChangeMessage.builder()
+                .type(type)
+                .id(id)
+                .version(version)
+                .origin(instanceId)
+                .changedAt(System.currentTimeMillis())
+                .build();
+        try {
+            catalogChangeKafkaTemplate.send(CATALOG_CHANGES_TOPIC, type + ":" + id, message)
+                    .addCallback(
+                            result -> {
+                                circuitBreaker.recordSuccess();
+                                countChanges("published");
+                            },
+                            e -> failed(message, e));
+        } catch (RuntimeException e) {
+            failed(message, e);
+        }
+    }
+
+    private void failed(CatalogChangeMessage message, Throwable e) {
+        log.warn("Could not publish " + message, e);
+        circuitBreaker.recordFailure();
+        countChanges("failed");
+    }
+
+    private void countChanges(String outcome) {
+        meterRegistry.counter(CATALOG_CHANGES_COUNTER, "outcome", outcome).increment();
+    }
+
+}
@@ -12,7 +12,12 @@ public final class KafkaConstants {
     // topic items
     public static final String PRODUCT_TOPIC = "product";
 
+    public static final String CATALOG_TOPIC = "catalog";
+
     // commands
     public static final String UNIT_AVAILABLE = "unit_available";
 
+    // events
+    public static final String CHANGES = "changes";
+
 }
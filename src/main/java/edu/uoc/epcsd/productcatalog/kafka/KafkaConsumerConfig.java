@@ -0,0 +1,63 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Consumers of the catalog.changes topic, switched off with {@code productcatalog.kafka.catalog-changes.enabled=false}
+ * where no broker is reachable, together with the catalog change template of {@link KafkaProducerConfig}.
+ */
+@EnableKafka
+@Configuration
+@ConditionalOnProperty(name = "productcatalog.kafka.catalog-changes.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaConsumerConfig {
+
+    @Value(value = "${spring.kafka.bootstrap-servers}")
+    private String bootstrapAddress;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public ConsumerFactory<String, CatalogChangeMessage> catalogChangeConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
+        // every instance reads the partitions without a group and only cares about the changes made while it runs, so
+        // there are no offsets to commit
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+
+        DefaultKafkaConsumerFactory<String, CatalogChangeMessage> consumerFactory = new DefaultKafkaConsumerFactory<>(
+                configProps, new StringDeserializer(), new JsonDeserializer<>(CatalogChangeMessage.class, false));
+        // consumer client metrics, including the records lag, as kafka.consumer.* meters
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return consumerFactory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, CatalogChangeMessage> catalogChangeListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, CatalogChangeMessage> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(catalogChangeConsumerFactory());
+        // without a group the offsets cannot be committed; the listener never acknowledges, so the container does not try
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAssignmentCommitOption(ContainerProperties.AssignmentCommitOption.NEVER);
+        return factory;
+    }
+
+}
@@ -1,12 +1,16 @@
 package edu.uoc.epcsd.productcatalog.kafka;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
@@ -19,8 +23,52 @@ public class KafkaProducerConfig {
     @Value(value = "${spring.kafka.bootstrap-servers}")
     private String bootstrapAddress;
 
-    @Bean
-    public ProducerFactory<String, ProductMessage> productMessageProducerFactory() {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // throughput tuning: wait a little to fill larger, compressed batches; idempotence keeps per-partition ordering
+    // and avoids duplicates on retries
+    @Value(value = "${productcatalog.kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value(value = "${productcatalog.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value(value = "${productcatalog.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value(value = "${productcatalog.kafka.producer.idempotence:true}")
+    private boolean idempotence;
+
+    // bound how long send() may block the relay thread waiting for metadata or buffer space, and how long a record
+    // may take to be acknowledged before its callback reports the failure (at least linger.ms + request.timeout.ms)
+    @Value(value = "${productcatalog.kafka.producer.max-block-ms:2000}")
+    private int maxBlockMs;
+
+    @Value(value = "${productcatalog.kafka.producer.delivery-timeout-ms:45000}")
+    private int deliveryTimeoutMs;
+
+    // the catalog change sends run on the request thread, after the commit, so they give up quickly
+    @Value(value = "${productcatalog.kafka.catalog-changes.max-block-ms:100}")
+    private int catalogChangesMaxBlockMs;
+
+    // json, or binary for the compact encoding of ProductMessageSerializer, which the consumers must read with
+    // ProductMessageDeserializer. Any other value fails the startup
+    @Value(value = "${productcatalog.kafka.producer.value-format:json}")
+    private ValueFormat valueFormat;
+
+    public enum ValueFormat {
+        JSON(JsonSerializer.class),
+        BINARY(ProductMessageSerializer.class);
+
+        private final Class<?> serializer;
+
+        ValueFormat(Class<?> serializer) {
+            this.serializer = serializer;
+        }
+    }
+
+    public Map<String, Object> productMessageProducerConfigs() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(
                 ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
@@ -28,14 +76,49 @@ public class KafkaProducerConfig {
         configProps.put(
                 ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
                 StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
-                JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, valueFormat.serializer);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
+        if (idempotence) {
+            configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        }
+        return configProps;
+    }
+
+    @Bean
+    public ProducerFactory<String, ProductMessage> productMessageProducerFactory() {
+        DefaultKafkaProducerFactory<String, ProductMessage> producerFactory = new DefaultKafkaProducerFactory<>(productMessageProducerConfigs());
+        // producer client metrics (send and error rates, request latency, buffer use) as kafka.producer.* meters
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
     }
 
+    // the template times every send as spring.kafka.template, tagged with its outcome (result and exception)
     @Bean
     public KafkaTemplate<String, ProductMessage> productKafkaTemplate() {
         return new KafkaTemplate<>(productMessageProducerFactory());
     }
 
+    // the catalog changes are neither published nor consumed with productcatalog.kafka.catalog-changes.enabled=false
+    @Bean
+    @ConditionalOnProperty(name = "productcatalog.kafka.catalog-changes.enabled", havingValue = "true", matchIfMissing = true)
+    public ProducerFactory<String, CatalogChangeMessage> catalogChangeProducerFactory() {
+        Map<String, Object> configProps = productMessageProducerConfigs();
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, catalogChangesMaxBlockMs);
+        DefaultKafkaProducerFactory<String, CatalogChangeMessage> producerFactory = new DefaultKafkaProducerFactory<>(configProps);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "productcatalog.kafka.catalog-changes.enabled", havingValue = "true", matchIfMissing = true)
+    public KafkaTemplate<String, CatalogChangeMessage> catalogChangeKafkaTemplate() {
+        return new KafkaTemplate<>(catalogChangeProducerFactory());
+    }
+
 }
@@ -16,15 +16,40 @@ public class KafkaTopicConfig {
     @Value(value = "${spring.kafka.bootstrap-servers}")
     private String bootstrapAddress;
 
+    // messages are keyed by product, so ordering per product holds whatever the number of partitions
+    @Value(value = "${productcatalog.kafka.unit-available.partitions:6}")
+    private int unitAvailablePartitions;
+
+    @Value(value = "${productcatalog.kafka.unit-available.replication-factor:1}")
+    private short unitAvailableReplicationFactor;
+
+    // messages are keyed by entity, so the changes of an entity are consumed in order
+    @Value(value = "${productcatalog.kafka.catalog-changes.partitions:3}")
+    private int catalogChangesPartitions;
+
+    @Value(value = "${productcatalog.kafka.catalog-changes.replication-factor:1}")
+    private short catalogChangesReplicationFactor;
+
+    // turned off where no broker is reachable (e.g. the benchmarks), so startup does not wait for the admin timeout
+    @Value(value = "${productcatalog.kafka.admin.auto-create:true}")
+    private boolean autoCreateTopics;
+
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        return new KafkaAdmin(configs);
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(configs);
+        kafkaAdmin.setAutoCreate(autoCreateTopics);
+        return kafkaAdmin;
     }
 
     @Bean
     public NewTopic unitAvailableTopic() {
-        return new NewTopic(KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE, 1, (short) 1);
+        return new NewTopic(KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE, unitAvailablePartitions, unitAvailableReplicationFactor);
+    }
+
+    @Bean
+    public NewTopic catalogChangesTopic() {
+        return new NewTopic(KafkaConstants.CATALOG_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.CHANGES, catalogChangesPartitions, catalogChangesReplicationFactor);
     }
 }
@@ -0,0 +1,278 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import edu.uoc.epcsd.productcatalog.entities.OutboxEvent;
+import edu.uoc.epcsd.productcatalog.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the events recorded in the outbox table. Pending events are claimed in batches, in the order they were
+ * written, and sent through the product template keyed by product id without waiting for the broker. A claim is a
+ * lease stored in the row and committed before sending, so the relays on other instances do not send the event again
+ * while its acknowledgement is awaited, and a relay that dies leaves it to the others once the lease expires. The send
+ * callbacks collect the acknowledged events, which are marked as delivered before every batch and at the end of every
+ * run; failed events are released at the end of the run and retried on a later one, so delivery is at least once.
+ * All the pending events of a product are claimed and sent in id order, and the idempotent producer keeps that order
+ * within the partition of the product. Once a send of a product fails, its later events are not sent in the same run
+ * but released with it, so they are not delivered ahead of it.
+ * <p>
+ * At most {@code max-in-flight} events are awaiting an acknowledgement at any time; when the window is full the
+ * {@link OverflowPolicy} decides whether the run stops or waits. While the {@link PublishCircuitBreaker} is open the
+ * relay does not touch the broker nor lock any outbox rows.
+ */
+@Log4j2
+@Component
+public class OutboxRelay {
+
+    public static final String OUTBOX_EVENTS_COUNTER = "productcatalog.outbox.events";
+
+    public static final String OUTBOX_IN_FLIGHT_GAUGE = "productcatalog.outbox.in.flight";
+
+    public enum OverflowPolicy {
+        // leave the remaining events in the outbox for the next run
+        DEFER,
+        // wait up to overflow-wait-ms for room in the window, then defer
+        WAIT
+    }
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private KafkaTemplate<String, ProductMessage> productKafkaTemplate;
+
+    @Autowired
+    @Qualifier(PublishCircuitBreakerConfig.OUTBOX_CIRCUIT_BREAKER)
+    private PublishCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productcatalog.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${productcatalog.outbox.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${productcatalog.outbox.overflow-policy:DEFER}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${productcatalog.outbox.overflow-wait-ms:1000}")
+    private long overflowWaitMs;
+
+    // longer than the producer delivery timeout, so that an event is acknowledged or failed before its claim expires
+    @Value("${productcatalog.outbox.claim-lease:PT2M}")
+    private Duration claimLease;
+
+    @Value("${productcatalog.outbox.retention:P7D}")
+    private Duration retention;
+
+    private Semaphore window;
+
+    // ids of the events sent and not yet acknowledged
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // filled by the send callbacks, on the producer thread, and drained by the relay
+    private final Queue<Long> acknowledged = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Long> failed = new ConcurrentLinkedQueue<>();
+
+    // products with a failed send in the current run, whose later events are held back until the next one
+    private final Set<Long> failedProducts = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        window = new Semaphore(maxInFlight);
+        Gauge.builder(OUTBOX_IN_FLIGHT_GAUGE, inFlight, Set::size)
+                .description("Outbox events sent and awaiting the broker acknowledgement")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${productcatalog.outbox.relay-interval-ms:500}")
+    public synchronized void relay() {
+        markAcknowledged();
+
+        if (!circuitBreaker.allowRequest()) {
+            log.debug("Publish circuit open, outbox events stay pending");
+            releaseFailed();
+            return;
+        }
+
+        // failed events stay claimed until the end of the run, so the run does not send them again
+        boolean more;
+        do {
+            List<OutboxEvent> claimed = new ArrayList<>();
+            more = transactionTemplate.execute(status -> claimBatch(claimed));
+            claimed.forEach(this::send);
+            markAcknowledged();
+        } while (more && circuitBreaker.getState() == PublishCircuitBreaker.State.CLOSED);
+
+        releaseFailed();
+        failedProducts.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${productcatalog.outbox.purge-interval-ms:3600000}")
+    public void purgeDelivered() {
+        int purged = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteDeliveredBefore(Instant.now().minus(retention)));
+
+        log.debug("Purged " + purged + " delivered outbox events");
+    }
+
+    /**
+     * Claims the next batch of events, taking a slot of the send window for each of them.
+     *
+     * @return whether the events were claimed and there may be more to claim
+     */
+    private boolean claimBatch(List<OutboxEvent> claimed) {
+        Instant now = Instant.now();
+        List<OutboxEvent> events = outboxEventRepository.findClaimableForUpdate(now, PageRequest.of(0, batchSize));
+
+        boolean windowFull = false;
+        for (OutboxEvent event : events) {
+            if (inFlight.contains(event.getId())) {
+                continue;
+            }
+            if (!acquireWindow()) {
+                log.debug("Outbox send window full, deferring the remaining events");
+                windowFull = true;
+                break;
+            }
+
+            inFlight.add(event.getId());
+            claimed.add(event);
+        }
+
+        if (!claimed.isEmpty()) {
+            outboxEventRepository.claim(claimed.stream().map(OutboxEvent::getId).collect(Collectors.toList()), now.plus(claimLease));
+        }
+
+        return !claimed.isEmpty() && !windowFull;
+    }
+
+    private boolean acquireWindow() {
+        if (overflowPolicy == OverflowPolicy.WAIT) {
+            try {
+                return window.tryAcquire(overflowWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return window.tryAcquire();
+    }
+
+    private void send(OutboxEvent event) {
+        Long eventId = event.getId();
+        Long productId = event.getProductId();
+        if (failedProducts.contains(productId)) {
+            holdBack(eventId);
+            return;
+        }
+
+        try {
+            productKafkaTemplate.send(
+                    event.getTopic(),
+                    String.valueOf(event.getProductId()),
+                    ProductMessage.builder().productId(event.getProductId()).build())
+                    .addCallback(
+                            result -> delivered(eventId),
+                            e -> failed(eventId, productId, e));
+        } catch (RuntimeException e) {
+            // serialization errors and the like are thrown instead of failing the future
+            failed(eventId, productId, e);
+        }
+    }
+
+    private void delivered(Long eventId) {
+        acknowledged.add(eventId);
+        circuitBreaker.recordSuccess();
+        countEvents("delivered", 1);
+    }
+
+    private void failed(Long eventId, Long productId, Throwable e) {
+        log.warn("Could not publish outbox event " + eventId + ", will retry", e);
+        failedProducts.add(productId);
+        holdBack(eventId);
+        circuitBreaker.recordFailure();
+        countEvents("failed", 1);
+    }
+
+    // gives up the send window slot of the event and leaves it claimed until the end of the run
+    private void holdBack(Long eventId) {
+        failed.add(eventId);
+        inFlight.remove(eventId);
+        window.release();
+    }
+
+    private void markAcknowledged() {
+        List<Long> deliveredIds = new ArrayList<>();
+        Long eventId;
+        while ((eventId = acknowledged.poll()) != null) {
+            deliveredIds.add(eventId);
+        }
+        if (deliveredIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.execute(status -> outboxEventRepository.markDelivered(deliveredIds, Instant.now()));
+        } catch (DataAccessException e) {
+            log.warn("Could not mark " + deliveredIds.size() + " outbox events as delivered, will retry", e);
+            acknowledged.addAll(deliveredIds);
+            return;
+        }
+
+        inFlight.removeAll(deliveredIds);
+        window.release(deliveredIds.size());
+    }
+
+    private void releaseFailed() {
+        List<Long> failedIds = new ArrayList<>();
+        Long eventId;
+        while ((eventId = failed.poll()) != null) {
+            failedIds.add(eventId);
+        }
+        if (failedIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.execute(status -> outboxEventRepository.releaseClaims(failedIds));
+        } catch (DataAccessException e) {
+            // their claims expire anyway
+            log.warn("Could not release " + failedIds.size() + " failed outbox events", e);
+        }
+    }
+
+    private void countEvents(String outcome, int count) {
+        meterRegistry.counter(OUTBOX_EVENTS_COUNTER, "outcome", outcome).increment(count);
+    }
+
+}
@@ -0,0 +1,49 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Reads the values written by {@link ProductMessageSerializer}, in any schema version up to the current one. A
+ * record without the version header, or with a newer version, fails with a {@link SerializationException}.
+ */
+public class ProductMessageDeserializer implements Deserializer<ProductMessage> {
+
+    @Override
+    public ProductMessage deserialize(String topic, byte[] data) {
+        throw new SerializationException("The " + ProductMessageSerializer.SCHEMA_VERSION_HEADER + " header is required to read " + topic);
+    }
+
+    @Override
+    public ProductMessage deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        Header header = headers.lastHeader(ProductMessageSerializer.SCHEMA_VERSION_HEADER);
+        if (header == null || header.value() == null || header.value().length != 1) {
+            throw new SerializationException("The " + ProductMessageSerializer.SCHEMA_VERSION_HEADER + " header is required to read " + topic);
+        }
+
+        byte version = header.value()[0];
+        if (version < 1 || version > ProductMessageSerializer.SCHEMA_VERSION) {
+            throw new SerializationException("Unsupported schema version " + version + " on " + topic);
+        }
+
+        return ProductMessage.builder().productId(data.length == 0 ? null : readVarLong(data)).build();
+    }
+
+    private static long readVarLong(byte[] data) {
+        long value = 0;
+        for (int i = 0, shift = 0; i < data.length && shift < 64; i++, shift += 7) {
+            value |= (long) (data[i] & 0x7F) << shift;
+            if ((data[i] & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed product id");
+    }
+
+}
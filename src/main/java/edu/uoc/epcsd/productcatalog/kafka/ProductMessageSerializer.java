@@ -0,0 +1,49 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Compact binary encoding of {@link ProductMessage}, an alternative to the JSON document and its type header. The
+ * layout of the value is given by the {@value #SCHEMA_VERSION_HEADER} header, so that it can evolve without breaking
+ * the consumers; read it back with {@link ProductMessageDeserializer}.
+ * <p>
+ * Version 1: the product id as an unsigned varint (seven bits a byte, least significant group first), and an empty
+ * value for a null id.
+ */
+public class ProductMessageSerializer implements Serializer<ProductMessage> {
+
+    public static final String SCHEMA_VERSION_HEADER = "schema_version";
+
+    public static final byte SCHEMA_VERSION = 1;
+
+    private static final byte[] SCHEMA_VERSION_VALUE = {SCHEMA_VERSION};
+
+    @Override
+    public byte[] serialize(String topic, ProductMessage data) {
+        if (data == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(10);
+        if (data.getProductId() != null) {
+            long value = data.getProductId();
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, ProductMessage data) {
+        headers.remove(SCHEMA_VERSION_HEADER);
+        headers.add(SCHEMA_VERSION_HEADER, SCHEMA_VERSION_VALUE);
+        return serialize(topic, data);
+    }
+
+}
@@ -0,0 +1,90 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stops publishing while the broker looks unreachable. After {@code failure-threshold} consecutive failed sends the
+ * circuit opens and {@link #allowRequest()} answers false for {@code open-duration}; then a trial run is let
+ * through (half open), whose first acknowledged send closes the circuit and whose first failed send opens it again.
+ * <p>
+ * Every publisher has a breaker of its own, declared in {@link PublishCircuitBreakerConfig}, so that the failures of
+ * one do not stop the others.
+ */
+@Log4j2
+public class PublishCircuitBreaker {
+
+    public static final String CIRCUIT_STATE_GAUGE = "productcatalog.kafka.circuit.state";
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+
+    private final int failureThreshold;
+
+    private final Duration openDuration;
+
+    private final Clock clock = Clock.systemUTC();
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private Instant openedAt;
+
+    public PublishCircuitBreaker(String name, int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        // 0 closed, 1 open, 2 half open
+        Gauge.builder(CIRCUIT_STATE_GAUGE, this, breaker -> breaker.getState().ordinal())
+                .description("State of the circuit breaker guarding Kafka sends")
+                .tag("publisher", name)
+                .register(meterRegistry);
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && !clock.instant().isBefore(openedAt.plus(openDuration))) {
+            state = State.HALF_OPEN;
+            log.info("Publish circuit " + name + " half open, trying the broker again");
+        }
+        return state != State.OPEN;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            log.info("Publish circuit " + name + " closed");
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.instant();
+            log.warn("Publish circuit " + name + " open after " + consecutiveFailures + " failed sends, pausing for " + openDuration);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openedAt = null;
+    }
+
+}
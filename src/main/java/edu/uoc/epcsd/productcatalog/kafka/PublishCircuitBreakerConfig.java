@@ -0,0 +1,47 @@
+package edu.uoc.epcsd.productcatalog.kafka;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * The circuit breakers of the outbox relay and of the catalog change publisher. They are apart so that the
+ * invalidation sends, which are best effort, neither stop nor are stopped by the outbox delivery.
+ */
+@Configuration
+public class PublishCircuitBreakerConfig {
+
+    public static final String OUTBOX_CIRCUIT_BREAKER = "publishCircuitBreaker";
+
+    public static final String CATALOG_CHANGES_CIRCUIT_BREAKER = "catalogChangeCircuitBreaker";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${productcatalog.kafka.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${productcatalog.kafka.circuit.open-duration:PT30S}")
+    private Duration openDuration;
+
+    @Value("${productcatalog.kafka.catalog-changes.circuit.failure-threshold:5}")
+    private int catalogChangesFailureThreshold;
+
+    @Value("${productcatalog.kafka.catalog-changes.circuit.open-duration:PT30S}")
+    private Duration catalogChangesOpenDuration;
+
+    @Bean(OUTBOX_CIRCUIT_BREAKER)
+    public PublishCircuitBreaker publishCircuitBreaker() {
+        return new PublishCircuitBreaker("outbox", failureThreshold, openDuration, meterRegistry);
+    }
+
+    @Bean(CATALOG_CHANGES_CIRCUIT_BREAKER)
+    public PublishCircuitBreaker catalogChangeCircuitBreaker() {
+        return new PublishCircuitBreaker("catalog-changes", catalogChangesFailureThreshold, catalogChangesOpenDuration, meterRegistry);
+    }
+
+}
@@ -0,0 +1,43 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.entities.CategoryItemCount;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryItemStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CategoryItemCountRepository extends JpaRepository<CategoryItemCount, CategoryItemCount.Key> {
+
+    String SELECT_CATEGORY_ITEM_STATUS_COUNTS = "SELECT c.categoryId AS categoryId, c.status AS status, c.total AS total "
+            + "FROM CategoryItemCount c";
+
+    @Query(SELECT_CATEGORY_ITEM_STATUS_COUNTS)
+    List<CategoryItemStatusCount> findCounts();
+
+    @Query(SELECT_CATEGORY_ITEM_STATUS_COUNTS + " WHERE c.categoryId IN :categoryIds")
+    List<CategoryItemStatusCount> findCountsByCategoryIn(@Param("categoryIds") Collection<Long> categoryIds);
+
+    /**
+     * The zero counts of a new category, one per status.
+     */
+    default void createCounts(Long categoryId) {
+        for (ItemStatus status : ItemStatus.values()) {
+            save(CategoryItemCount.builder().categoryId(categoryId).status(status).total(0).build());
+        }
+    }
+
+    @Modifying
+    @Query("UPDATE CategoryItemCount c SET c.total = c.total + :delta WHERE c.categoryId = :categoryId AND c.status = :status")
+    int addItems(@Param("categoryId") Long categoryId, @Param("status") ItemStatus status, @Param("delta") long delta);
+
+    @Modifying
+    @Query("UPDATE CategoryItemCount c SET c.total = c.total + :delta "
+            + "WHERE c.categoryId = (SELECT p.category.id FROM Product p WHERE p.id = :productId) AND c.status = :status")
+    int addProductItems(@Param("productId") Long productId, @Param("status") ItemStatus status, @Param("delta") long delta);
+
+}
@@ -1,19 +1,27 @@
 package edu.uoc.epcsd.productcatalog.repositories;
 
 import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryName;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
-public interface CategoryRepository extends JpaRepository<Category, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 
-    List<Category> findByParentId(Long id);
+public interface CategoryRepository extends JpaRepository<Category, Long>, CategoryRepositoryCustom {
 
-    @Query("SELECT c FROM Category c WHERE " +
-            "(:name is null or c.name = :name) and " +
-            "(:description is null or c.description = :description)")
-    List<Category> findByNameAndDescription(@Param("name") String name, @Param("description") String description);
+    // cached until the next write to the category table, and read from the primary (see CategoryService)
+    @Query("SELECT c.id AS id, c.version AS version, c.name AS name, c.description AS description, p.id AS parentId, p.name AS parentName " +
+            "FROM Category c JOIN c.parent p WHERE p.id = :parentId ORDER BY c.id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<CategorySummary> findSummariesByParentId(@Param("parentId") Long parentId);
+
+    @Query("SELECT c.id AS id, c.name AS name FROM Category c")
+    List<CategoryName> findAllNames();
 
 }
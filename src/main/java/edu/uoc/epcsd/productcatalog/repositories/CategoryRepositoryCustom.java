@@ -0,0 +1,14 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
+
+import java.util.List;
+
+public interface CategoryRepositoryCustom {
+
+    /**
+     * Categories with the given name and description, ordered by id; null arguments do not filter.
+     */
+    List<CategorySummary> findSummariesByNameAndDescription(String name, String description);
+
+}
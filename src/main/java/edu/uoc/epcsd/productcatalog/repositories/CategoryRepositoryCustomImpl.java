@@ -0,0 +1,28 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Map;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // cached like findSummariesByParentId, and read from the primary for the same reason
+    @Override
+    public List<CategorySummary> findSummariesByNameAndDescription(String name, String description) {
+        return DynamicQuery.of("SELECT c.id AS id, c.version AS version, c.name AS name, c.description AS description, " +
+                        "p.id AS parentId, p.name AS parentName FROM Category c LEFT JOIN c.parent p")
+                .where("c.name = :name", "name", name)
+                .where("c.description = :description", "description", description)
+                .orderBy("c.id")
+                .list(entityManager, CategorySummary.class, Map.of(HINT_CACHEABLE, true));
+    }
+
+}
@@ -0,0 +1,101 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Builds a JPQL query with only the predicates whose value was given, so the database sees {@code name = ?} rather
+ * than {@code (? IS NULL OR name = ?)} and can pick an index for it. Rows are returned as the same projection
+ * interfaces the derived repository queries use, backed by the aliases of the select clause.
+ */
+final class DynamicQuery {
+
+    private static final ProjectionFactory PROJECTION_FACTORY = new SpelAwareProxyProjectionFactory();
+
+    private final StringBuilder jpql;
+
+    private final Map<String, Object> parameters = new HashMap<>();
+
+    private boolean hasWhere;
+
+    private String orderBy;
+
+    private DynamicQuery(String selectFrom) {
+        this.jpql = new StringBuilder(selectFrom);
+    }
+
+    static DynamicQuery of(String selectFrom) {
+        return new DynamicQuery(selectFrom);
+    }
+
+    /**
+     * Adds {@code predicate}, which refers to {@code :parameter}, unless the value is null.
+     */
+    DynamicQuery where(String predicate, String parameter, Object value) {
+        if (value != null) {
+            jpql.append(hasWhere ? " AND " : " WHERE ").append(predicate);
+            parameters.put(parameter, value);
+            hasWhere = true;
+        }
+        return this;
+    }
+
+    DynamicQuery orderBy(String orderBy) {
+        this.orderBy = orderBy;
+        return this;
+    }
+
+    <T> List<T> list(EntityManager entityManager, Class<T> projection) {
+        return project(projection, query(entityManager).getResultList());
+    }
+
+    <T> List<T> list(EntityManager entityManager, Class<T> projection, Map<String, Object> hints) {
+        TypedQuery<Tuple> query = query(entityManager);
+        hints.forEach(query::setHint);
+        return project(projection, query.getResultList());
+    }
+
+    <T> List<T> list(EntityManager entityManager, Class<T> projection, int maxResults) {
+        return project(projection, query(entityManager).setMaxResults(maxResults).getResultList());
+    }
+
+    <T> Stream<T> stream(EntityManager entityManager, Class<T> projection, Map<String, Object> hints) {
+        TypedQuery<Tuple> query = query(entityManager);
+        hints.forEach(query::setHint);
+        return query.getResultStream().map(tuple -> project(projection, tuple));
+    }
+
+    String getJpql() {
+        return orderBy != null ? jpql + " ORDER BY " + orderBy : jpql.toString();
+    }
+
+    private TypedQuery<Tuple> query(EntityManager entityManager) {
+        TypedQuery<Tuple> query = entityManager.createQuery(getJpql(), Tuple.class);
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    private static <T> List<T> project(Class<T> projection, List<Tuple> tuples) {
+        List<T> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            rows.add(project(projection, tuple));
+        }
+        return rows;
+    }
+
+    private static <T> T project(Class<T> projection, Tuple tuple) {
+        Map<String, Object> values = new HashMap<>();
+        for (TupleElement<?> element : tuple.getElements()) {
+            values.put(element.getAlias(), tuple.get(element));
+        }
+        return PROJECTION_FACTORY.createProjection(projection, values);
+    }
+
+}
@@ -1,12 +1,31 @@
 package edu.uoc.epcsd.productcatalog.repositories;
 
 import edu.uoc.epcsd.productcatalog.entities.Item;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemStatusCount;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
 
     Optional<Item> findBySerialNumber(String serialNumber);
 
+    @Query("SELECT i.serialNumber AS serialNumber, i.version AS version, i.status AS status, p.id AS productId, p.name AS productName " +
+            "FROM Item i JOIN i.product p WHERE i.serialNumber = :serialNumber")
+    Optional<ItemSummary> findSummaryBySerialNumber(@Param("serialNumber") String serialNumber);
+
+    @Query("SELECT i.version FROM Item i WHERE i.serialNumber = :serialNumber")
+    Optional<Long> findVersionBySerialNumber(@Param("serialNumber") String serialNumber);
+
+    @Query("SELECT i.product.id AS productId, i.status AS status, COUNT(i) AS total FROM Item i GROUP BY i.product.id, i.status")
+    List<ItemStatusCount> countByProductAndStatus();
+
+    @Query("SELECT i.serialNumber FROM Item i WHERE i.serialNumber IN :serialNumbers")
+    List<String> findExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
+
 }
@@ -0,0 +1,19 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ItemRepositoryCustom {
+
+    /**
+     * Keyset pagination: the page starts right after the given serial number, so the cost of a page does not depend
+     * on how deep the client has paged. Null arguments do not filter.
+     */
+    List<ItemSummary> findPage(String after, ItemStatus status, Long productId, int limit);
+
+    Stream<ItemSummary> streamAll(ItemStatus status, Long productId);
+
+}
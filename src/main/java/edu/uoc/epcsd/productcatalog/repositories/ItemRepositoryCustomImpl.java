@@ -0,0 +1,43 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+
+    private static final String SELECT_SUMMARIES = "SELECT i.serialNumber AS serialNumber, i.version AS version, i.status AS status, " +
+            "p.id AS productId, p.name AS productName FROM Item i JOIN i.product p";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ItemSummary> findPage(String after, ItemStatus status, Long productId, int limit) {
+        return DynamicQuery.of(SELECT_SUMMARIES)
+                .where("i.serialNumber > :after", "after", after)
+                .where("i.status = :status", "status", status)
+                .where("p.id = :productId", "productId", productId)
+                .orderBy("i.serialNumber")
+                .list(entityManager, ItemSummary.class, limit);
+    }
+
+    @Override
+    public Stream<ItemSummary> streamAll(ItemStatus status, Long productId) {
+        return DynamicQuery.of(SELECT_SUMMARIES)
+                .where("i.status = :status", "status", status)
+                .where("p.id = :productId", "productId", productId)
+                .orderBy("i.serialNumber")
+                .stream(entityManager, ItemSummary.class, Map.of(HINT_FETCH_SIZE, STREAM_FETCH_SIZE));
+    }
+
+}
@@ -0,0 +1,51 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatusChange;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductDowntime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemStatusChangeRepository extends JpaRepository<ItemStatusChange, Long> {
+
+    // every non-operational interval of an item runs from the change that started it to the next change (LEAD), and
+    // is clipped to [from, to). Besides the changes in the period the last change before it is read too, since it
+    // gives the status of the item when the period started. That one is found once per item, joining the latest
+    // instant of each item before the period back to its row through the (serial_number, changed_at) index, rather
+    // than looking it up again for every older change. Instants are epoch milliseconds
+    String DOWNTIME_SELECT = "SELECT t.product_id AS productId, " +
+            "SUM(GREATEST(LEAST(COALESCE(t.next_changed_at, :to), :to) - GREATEST(t.changed_at, :from), 0)) AS downtimeMillis " +
+            "FROM (SELECT c.product_id, c.status, c.changed_at, " +
+            "LEAD(c.changed_at) OVER (PARTITION BY c.serial_number ORDER BY c.changed_at, c.id) AS next_changed_at " +
+            "FROM (SELECT i.id, i.serial_number, i.product_id, i.status, i.changed_at FROM item_status_change i " +
+            "WHERE i.changed_at >= :from AND i.changed_at < :to " +
+            "UNION ALL " +
+            "SELECT i.id, i.serial_number, i.product_id, i.status, i.changed_at FROM item_status_change i " +
+            "JOIN (SELECT p.serial_number, MAX(p.changed_at) AS changed_at FROM item_status_change p " +
+            "WHERE p.changed_at < :from GROUP BY p.serial_number) l " +
+            "ON l.serial_number = i.serial_number AND l.changed_at = i.changed_at) c ";
+
+    String DOWNTIME_GROUP = ") t WHERE t.status = 'NON_OPERATIONAL' GROUP BY t.product_id ORDER BY t.product_id";
+
+    @Query("SELECT c FROM ItemStatusChange c WHERE c.serialNumber = :serialNumber AND c.changedAt >= :from AND c.changedAt < :to ORDER BY c.changedAt, c.id")
+    List<ItemStatusChange> findTimeline(@Param("serialNumber") String serialNumber,
+                                        @Param("from") Instant from,
+                                        @Param("to") Instant to);
+
+    /**
+     * Downtime of every product with a non-operational item at some point of the period.
+     */
+    @Query(value = DOWNTIME_SELECT + DOWNTIME_GROUP, nativeQuery = true)
+    List<ProductDowntime> findDowntime(@Param("from") long fromEpochMillis,
+                                       @Param("to") long toEpochMillis);
+
+    @Query(value = DOWNTIME_SELECT + "WHERE c.product_id = :productId " + DOWNTIME_GROUP, nativeQuery = true)
+    Optional<ProductDowntime> findDowntimeByProductId(@Param("productId") Long productId,
+                                                      @Param("from") long fromEpochMillis,
+                                                      @Param("to") long toEpochMillis);
+
+}
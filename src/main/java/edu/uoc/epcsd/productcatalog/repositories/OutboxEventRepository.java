@@ -0,0 +1,42 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.entities.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * The pending events no relay has claimed, or whose claim has expired, in the order they were written. Rows locked
+     * by a relay claiming them on another instance are skipped rather than waited for.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e WHERE e.deliveredAt IS NULL AND (e.claimedUntil IS NULL OR e.claimedUntil < :now)"
+            + " ORDER BY e.id")
+    List<OutboxEvent> findClaimableForUpdate(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = :claimedUntil WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") Instant claimedUntil);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.claimedUntil = NULL WHERE e.id IN :ids AND e.deliveredAt IS NULL")
+    int releaseClaims(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.deliveredAt = :deliveredAt WHERE e.id IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("deliveredAt") Instant deliveredAt);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.deliveredAt < :deliveredBefore")
+    int deleteDeliveredBefore(@Param("deliveredBefore") Instant deliveredBefore);
+
+}
@@ -1,17 +1,35 @@
 package edu.uoc.epcsd.productcatalog.repositories;
 
 import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryProductStats;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductInCategory;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductNameInCategory;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
-    @Query("SELECT p FROM Product p WHERE " +
-            "(COALESCE(:name, NULL) IS NULL OR p.name = :name) AND " +
-            "(COALESCE(:categoryId, NULL) IS NULL OR p.category.id = :categoryId)")
-    List<Product> findByNameOrCategoryId(@Param("name") String name,
-                                         @Param("categoryId") Long categoryId);
+    String SELECT_CATEGORY_PRODUCT_STATS = "SELECT p.category.id AS categoryId, COUNT(p) AS products, MIN(p.dailyPrice) AS minDailyPrice, "
+            + "MAX(p.dailyPrice) AS maxDailyPrice, SUM(p.dailyPrice) AS dailyPriceSum FROM Product p";
+
+    @Query("SELECT p.category.id AS categoryId, p.name AS name FROM Product p WHERE p.name IN :names")
+    List<ProductNameInCategory> findNamesInCategoriesByNameIn(@Param("names") Collection<String> names);
+
+    @Query("SELECT p.id AS productId, p.category.id AS categoryId FROM Product p WHERE p.id IN :ids")
+    List<ProductInCategory> findCategoryIds(@Param("ids") Collection<Long> ids);
+
+    @Query(ProductRepositoryCustomImpl.SELECT_SUMMARIES + " WHERE p.id = :id")
+    Optional<ProductSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(SELECT_CATEGORY_PRODUCT_STATS + " GROUP BY p.category.id")
+    List<CategoryProductStats> findStatsByCategory();
+
+    @Query(SELECT_CATEGORY_PRODUCT_STATS + " WHERE p.category.id IN :categoryIds GROUP BY p.category.id")
+    List<CategoryProductStats> findStatsByCategoryIn(@Param("categoryIds") Collection<Long> categoryIds);
 }
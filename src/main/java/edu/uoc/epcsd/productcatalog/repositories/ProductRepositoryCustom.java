@@ -0,0 +1,17 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Products with the given name and in the given category; null arguments do not filter.
+     */
+    List<ProductSummary> findSummaries(String name, Long categoryId);
+
+    List<ProductSummary> findSummariesInCategories(String name, Collection<Long> categoryIds);
+
+}
@@ -0,0 +1,36 @@
+package edu.uoc.epcsd.productcatalog.repositories;
+
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    // list queries select the product columns only (p.category.id is the foreign key, so there is no join); the
+    // category name and path are resolved from the in-memory category tree
+    static final String SELECT_SUMMARIES = "SELECT p.id AS id, p.version AS version, p.name AS name, p.description AS description, " +
+            "p.dailyPrice AS dailyPrice, p.brand AS brand, p.model AS model, p.category.id AS categoryId FROM Product p";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSummary> findSummaries(String name, Long categoryId) {
+        return DynamicQuery.of(SELECT_SUMMARIES)
+                .where("p.name = :name", "name", name)
+                .where("p.category.id = :categoryId", "categoryId", categoryId)
+                .list(entityManager, ProductSummary.class);
+    }
+
+    @Override
+    public List<ProductSummary> findSummariesInCategories(String name, Collection<Long> categoryIds) {
+        return DynamicQuery.of(SELECT_SUMMARIES)
+                .where("p.name = :name", "name", name)
+                .where("p.category.id IN :categoryIds", "categoryIds", categoryIds)
+                .list(entityManager, ProductSummary.class);
+    }
+
+}
@@ -0,0 +1,13 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+
+public interface CategoryItemStatusCount {
+
+    Long getCategoryId();
+
+    ItemStatus getStatus();
+
+    long getTotal();
+
+}
@@ -0,0 +1,9 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+public interface CategoryName {
+
+    Long getId();
+
+    String getName();
+
+}
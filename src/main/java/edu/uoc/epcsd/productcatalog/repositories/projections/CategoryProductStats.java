@@ -0,0 +1,15 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+public interface CategoryProductStats {
+
+    Long getCategoryId();
+
+    long getProducts();
+
+    Double getMinDailyPrice();
+
+    Double getMaxDailyPrice();
+
+    Double getDailyPriceSum();
+
+}
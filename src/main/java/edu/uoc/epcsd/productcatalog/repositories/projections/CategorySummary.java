@@ -0,0 +1,17 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+public interface CategorySummary {
+
+    Long getId();
+
+    Long getVersion();
+
+    String getName();
+
+    String getDescription();
+
+    Long getParentId();
+
+    String getParentName();
+
+}
@@ -0,0 +1,17 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+
+public interface ItemSummary {
+
+    String getSerialNumber();
+
+    Long getVersion();
+
+    ItemStatus getStatus();
+
+    Long getProductId();
+
+    String getProductName();
+
+}
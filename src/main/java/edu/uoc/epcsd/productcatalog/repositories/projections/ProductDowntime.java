@@ -0,0 +1,9 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+public interface ProductDowntime {
+
+    Long getProductId();
+
+    long getDowntimeMillis();
+
+}
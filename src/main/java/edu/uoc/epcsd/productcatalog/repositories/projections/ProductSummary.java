@@ -0,0 +1,21 @@
+package edu.uoc.epcsd.productcatalog.repositories.projections;
+
+public interface ProductSummary {
+
+    Long getId();
+
+    Long getVersion();
+
+    String getName();
+
+    String getDescription();
+
+    Double getDailyPrice();
+
+    String getBrand();
+
+    String getModel();
+
+    Long getCategoryId();
+
+}
@@ -0,0 +1,159 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.ItemRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemStatusCount;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps per product counters of operational and non-operational items, so availability is answered in O(1). The
+ * counters are loaded from the database at startup, updated when an item change commits and periodically checked
+ * against the database by {@link #reconcile()}.
+ */
+@Log4j2
+@Service
+public class AvailabilityService {
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    // every update stamps the counters it touches, so reconciliation can leave alone the ones changed while it ran
+    private final AtomicLong updates = new AtomicLong();
+
+    public ProductAvailability getAvailability(Long productId) {
+        Counters productCounters = counters.get(productId);
+        return productCounters != null ? productCounters.toAvailability(productId) : ProductAvailability.none(productId);
+    }
+
+    public Map<Long, ProductAvailability> getAvailability(Collection<Long> productIds) {
+        Map<Long, ProductAvailability> availability = new LinkedHashMap<>();
+        for (Long productId : productIds) {
+            availability.put(productId, getAvailability(productId));
+        }
+        return availability;
+    }
+
+    public Map<Long, ProductAvailability> getAllAvailability() {
+        Map<Long, ProductAvailability> availability = new HashMap<>();
+        counters.forEach((productId, productCounters) -> availability.put(productId, productCounters.toAvailability(productId)));
+        return availability;
+    }
+
+    public void itemsCreated(Long productId, long count) {
+        AfterCommit.run(() -> update(productId, count, 0));
+    }
+
+    public void statusChanged(Long productId, ItemStatus newStatus) {
+        if (newStatus == ItemStatus.OPERATIONAL) {
+            AfterCommit.run(() -> update(productId, 1, -1));
+        } else {
+            AfterCommit.run(() -> update(productId, -1, 1));
+        }
+    }
+
+    public void productDeleted(Long productId) {
+        AfterCommit.run(() -> counters.remove(productId));
+    }
+
+    /**
+     * Loads the counters from the database, product by product: readers never find them empty, and the counters
+     * updated while they were loaded are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = updates.incrementAndGet();
+        Map<Long, Counters> loaded = load(start);
+        replaceStale(loaded, start);
+
+        log.info("Loaded availability counters for " + loaded.size() + " products");
+    }
+
+    /**
+     * Compares the counters with the database and fixes the ones that drifted. Counters updated while the check ran
+     * are skipped, they are checked again on the next run.
+     */
+    @Scheduled(fixedDelayString = "${productcatalog.availability.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long start = updates.incrementAndGet();
+        int fixed = replaceStale(load(start), start);
+
+        if (fixed > 0) {
+            log.warn("Reconciliation fixed the availability counters of " + fixed + " products");
+        }
+    }
+
+    /**
+     * Replaces the counters that differ from the expected ones, except those updated after {@code start}.
+     *
+     * @return the number of counters replaced
+     */
+    private int replaceStale(Map<Long, Counters> expected, long start) {
+        Set<Long> productIds = new HashSet<>(counters.keySet());
+        productIds.addAll(expected.keySet());
+
+        int replacedCount = 0;
+        for (Long productId : productIds) {
+            Counters actual = counters.get(productId);
+            Counters correct = expected.get(productId);
+            if (actual != null && actual.stamp > start) {
+                continue;
+            }
+            if (!Objects.equals(actual != null ? actual.toAvailability(productId) : null, correct != null ? correct.toAvailability(productId) : null)) {
+                boolean replaced = correct != null
+                        ? (actual != null ? counters.replace(productId, actual, correct) : counters.putIfAbsent(productId, correct) == null)
+                        : counters.remove(productId, actual);
+                if (replaced) {
+                    replacedCount++;
+                }
+            }
+        }
+        return replacedCount;
+    }
+
+    private Map<Long, Counters> load(long stamp) {
+        Map<Long, Counters> loaded = new HashMap<>();
+        for (ItemStatusCount count : itemRepository.countByProductAndStatus()) {
+            loaded.merge(count.getProductId(),
+                    count.getStatus() == ItemStatus.OPERATIONAL
+                            ? new Counters(count.getTotal(), 0, stamp)
+                            : new Counters(0, count.getTotal(), stamp),
+                    (a, b) -> new Counters(a.operational + b.operational, a.nonOperational + b.nonOperational, stamp));
+        }
+        return loaded;
+    }
+
+    private void update(Long productId, long operationalDelta, long nonOperationalDelta) {
+        long stamp = updates.incrementAndGet();
+        counters.merge(productId,
+                new Counters(operationalDelta, nonOperationalDelta, stamp),
+                (current, delta) -> new Counters(current.operational + delta.operational, current.nonOperational + delta.nonOperational, stamp));
+    }
+
+    @AllArgsConstructor
+    private static final class Counters {
+
+        private final long operational;
+
+        private final long nonOperational;
+
+        private final long stamp;
+
+        private ProductAvailability toAvailability(Long productId) {
+            return new ProductAvailability(productId, operational, nonOperational);
+        }
+
+    }
+
+}
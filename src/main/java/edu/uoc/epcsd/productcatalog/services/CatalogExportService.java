@@ -0,0 +1,124 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes the whole catalog as NDJSON: every category, then every product, then every item, each ordered by id and
+ * tagged with its {@code type}. The three tables are read in one repeatable read transaction, so the export is a
+ * consistent snapshot, through forward-only cursors with a fixed fetch size: rows are written as they are fetched
+ * and memory use does not depend on the size of the catalog.
+ */
+@Service
+public class CatalogExportService {
+
+    public static final String CATEGORY = "category";
+
+    public static final String PRODUCT = "product";
+
+    public static final String ITEM = "item";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${productcatalog.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        // a template of its own, so the fetch size does not apply to the rest of the application
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportCatalog(OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        // lines are separated by the new lines written after every row
+        generator.setRootValueSeparator(null);
+
+        jdbcTemplate.query(
+                "SELECT id, name, description, parent_id FROM category ORDER BY id",
+                writeRows(generator, (rs, g) -> {
+                    g.writeStringField("type", CATEGORY);
+                    g.writeNumberField("id", rs.getLong("id"));
+                    g.writeStringField("name", rs.getString("name"));
+                    g.writeStringField("description", rs.getString("description"));
+                    writeNullableLong(g, "parentId", rs, "parent_id");
+                }));
+
+        jdbcTemplate.query(
+                "SELECT id, name, description, daily_price, brand, model, category_id FROM product ORDER BY id",
+                writeRows(generator, (rs, g) -> {
+                    g.writeStringField("type", PRODUCT);
+                    g.writeNumberField("id", rs.getLong("id"));
+                    g.writeStringField("name", rs.getString("name"));
+                    g.writeStringField("description", rs.getString("description"));
+                    g.writeNumberField("dailyPrice", rs.getDouble("daily_price"));
+                    g.writeStringField("brand", rs.getString("brand"));
+                    g.writeStringField("model", rs.getString("model"));
+                    g.writeNumberField("categoryId", rs.getLong("category_id"));
+                }));
+
+        jdbcTemplate.query(
+                "SELECT serial_number, status, product_id FROM item ORDER BY serial_number",
+                writeRows(generator, (rs, g) -> {
+                    g.writeStringField("type", ITEM);
+                    g.writeStringField("serialNumber", rs.getString("serial_number"));
+                    g.writeStringField("status", rs.getString("status"));
+                    g.writeNumberField("productId", rs.getLong("product_id"));
+                }));
+
+        generator.flush();
+    }
+
+    private static RowCallbackHandler writeRows(JsonGenerator generator, RowWriter rowWriter) {
+        return rs -> {
+            try {
+                generator.writeStartObject();
+                rowWriter.write(rs, generator);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static void writeNullableLong(JsonGenerator generator, String field, ResultSet rs, String column) throws SQLException, IOException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+
+        void write(ResultSet rs, JsonGenerator generator) throws SQLException, IOException;
+
+    }
+
+}
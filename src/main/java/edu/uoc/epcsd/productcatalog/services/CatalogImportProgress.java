@@ -0,0 +1,17 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class CatalogImportProgress {
+
+    private final long processed;
+
+    private final long created;
+
+    private final long failed;
+
+}
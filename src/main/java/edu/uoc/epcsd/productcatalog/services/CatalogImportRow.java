@@ -0,0 +1,38 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+/**
+ * One line of a catalog import. Categories use {@code parent} to name their parent category, products use
+ * {@code category} to name theirs; parents must appear before the rows that reference them.
+ */
+@ToString
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CatalogImportRow {
+
+    public static final String CATEGORY = "category";
+
+    public static final String PRODUCT = "product";
+
+    private String type;
+
+    private String name;
+
+    private String description;
+
+    private String parent;
+
+    private String category;
+
+    private Double dailyPrice;
+
+    private String brand;
+
+    private String model;
+
+}
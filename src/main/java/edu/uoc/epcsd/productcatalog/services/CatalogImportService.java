@@ -0,0 +1,351 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.kafka.CatalogChangePublisher;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryItemCountRepository;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryRepository;
+import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryName;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductNameInCategory;
+import lombok.AllArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Imports categories and products from a NDJSON or CSV stream. The input is read line by line and written in
+ * batches, each in its own transaction, so memory use depends on the batch size and not on the size of the input.
+ * Parent categories are resolved by name in the same pass, so they must appear before the rows that reference them.
+ */
+@Log4j2
+@Service
+public class CatalogImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public interface Listener {
+
+        void rowFailed(long line, String message);
+
+        void batchCommitted(CatalogImportProgress progress);
+
+    }
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryItemCountRepository categoryItemCountRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogChangePublisher catalogChangePublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CatalogImportProgress importCatalog(Reader input, Format format, int batchSize, Listener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+
+        ImportState state = new ImportState();
+        for (CategoryName category : categoryRepository.findAllNames()) {
+            state.categoryIds.put(category.getName(), category.getId());
+        }
+
+        List<String> header = null;
+        List<NumberedRow> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            if (format == Format.CSV && header == null) {
+                header = parseCsvLine(line);
+                continue;
+            }
+
+            state.processed++;
+            try {
+                batch.add(new NumberedRow(lineNumber, parse(line, format, header)));
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                fail(state, listener, lineNumber, "Could not parse row: " + e.getMessage());
+            }
+
+            if (batch.size() == batchSize) {
+                writeBatch(batch, state, listener);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            writeBatch(batch, state, listener);
+        }
+
+        return state.toProgress();
+    }
+
+    private CatalogImportRow parse(String line, Format format, List<String> header) throws JsonProcessingException {
+        if (format == Format.NDJSON) {
+            return objectMapper.readValue(line, CatalogImportRow.class);
+        }
+
+        List<String> values = parseCsvLine(line);
+        if (values.size() > header.size()) {
+            throw new IllegalArgumentException("more values than columns in the header");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).isEmpty()) {
+                fields.put(header.get(i), values.get(i));
+            }
+        }
+        return objectMapper.convertValue(fields, CatalogImportRow.class);
+    }
+
+    private void writeBatch(List<NumberedRow> batch, ImportState state, Listener listener) {
+        Map<String, Long> newCategoryIds = new HashMap<>();
+        List<Product> newProducts = new ArrayList<>();
+        Map<Long, String> rowErrors = new LinkedHashMap<>();
+
+        try {
+            int created = transactionTemplate.execute(status -> {
+                Set<String> takenProductNames = existingProductNames(batch);
+                int persisted = 0;
+
+                for (NumberedRow numberedRow : batch) {
+                    String error = validate(numberedRow.row);
+                    if (error == null) {
+                        error = CatalogImportRow.CATEGORY.equals(numberedRow.row.getType())
+                                ? persistCategory(numberedRow.row, state.categoryIds, newCategoryIds)
+                                : persistProduct(numberedRow.row, state.categoryIds, newCategoryIds, takenProductNames, newProducts);
+                    }
+
+                    if (error == null) {
+                        persisted++;
+                    } else {
+                        rowErrors.put(numberedRow.line, error);
+                    }
+                }
+
+                // keep the persistence context as small as the batch
+                entityManager.flush();
+                entityManager.clear();
+
+                return persisted;
+            });
+
+            state.created += created;
+            state.categoryIds.putAll(newCategoryIds);
+            rowErrors.forEach((line, message) -> fail(state, listener, line, message));
+        } catch (DataAccessException | PersistenceException e) {
+            // the flush on the shared entity manager throws untranslated persistence exceptions
+            log.warn("Could not write catalog import batch", e);
+            newCategoryIds.clear();
+            newProducts.clear();
+            for (NumberedRow numberedRow : batch) {
+                fail(state, listener, numberedRow.line, rowErrors.getOrDefault(numberedRow.line, "Batch rejected by the database: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+            }
+        }
+
+        if (!newCategoryIds.isEmpty()) {
+            categoryService.invalidateCategoryTree();
+            // new categories are at their first version
+            newCategoryIds.values().forEach(categoryId -> catalogChangePublisher.categoryChanged(categoryId, 0L));
+        }
+
+        if (!newProducts.isEmpty()) {
+            CategoryTree categoryTree = categoryService.getCategoryTree();
+            newProducts.forEach(product -> productSearchIndex.index(ProductDetails.fromDomain(product, categoryTree)));
+            newProducts.forEach(product -> catalogChangePublisher.productChanged(product.getId(), product.getVersion()));
+        }
+
+        listener.batchCommitted(state.toProgress());
+    }
+
+    private String validate(CatalogImportRow row) {
+        if (!CatalogImportRow.CATEGORY.equals(row.getType()) && !CatalogImportRow.PRODUCT.equals(row.getType())) {
+            return "Unknown row type: " + row.getType();
+        }
+        if (row.getName() == null || row.getDescription() == null) {
+            return "Name and description are required";
+        }
+        if (CatalogImportRow.PRODUCT.equals(row.getType())
+                && (row.getCategory() == null || row.getDailyPrice() == null || row.getBrand() == null || row.getModel() == null)) {
+            return "Category, daily price, brand and model are required for products";
+        }
+        return null;
+    }
+
+    private String persistCategory(CatalogImportRow row, Map<String, Long> categoryIds, Map<String, Long> newCategoryIds) {
+        if (categoryIds.containsKey(row.getName()) || newCategoryIds.containsKey(row.getName())) {
+            return "Category already exists";
+        }
+
+        Category category = Category.builder().name(row.getName()).description(row.getDescription()).build();
+
+        if (row.getParent() != null) {
+            Long parentId = resolveCategory(row.getParent(), categoryIds, newCategoryIds);
+            if (parentId == null) {
+                return "Parent category not found";
+            }
+            category.setParent(entityManager.getReference(Category.class, parentId));
+        }
+
+        entityManager.persist(category);
+        categoryItemCountRepository.createCounts(category.getId());
+        newCategoryIds.put(category.getName(), category.getId());
+
+        return null;
+    }
+
+    private String persistProduct(CatalogImportRow row, Map<String, Long> categoryIds, Map<String, Long> newCategoryIds,
+                                  Set<String> takenProductNames, List<Product> newProducts) {
+        Long categoryId = resolveCategory(row.getCategory(), categoryIds, newCategoryIds);
+        if (categoryId == null) {
+            return "Category not found";
+        }
+
+        if (!takenProductNames.add(categoryId + ":" + row.getName())) {
+            return "Product already exists";
+        }
+
+        Product product = Product.builder()
+                .name(row.getName())
+                .description(row.getDescription())
+                .dailyPrice(row.getDailyPrice())
+                .brand(row.getBrand())
+                .model(row.getModel())
+                .category(entityManager.getReference(Category.class, categoryId))
+                .build();
+        entityManager.persist(product);
+        newProducts.add(product);
+
+        return null;
+    }
+
+    private Long resolveCategory(String name, Map<String, Long> categoryIds, Map<String, Long> newCategoryIds) {
+        Long id = newCategoryIds.get(name);
+        return id != null ? id : categoryIds.get(name);
+    }
+
+    private Set<String> existingProductNames(List<NumberedRow> batch) {
+        Set<String> names = new HashSet<>();
+        for (NumberedRow numberedRow : batch) {
+            if (CatalogImportRow.PRODUCT.equals(numberedRow.row.getType()) && numberedRow.row.getName() != null) {
+                names.add(numberedRow.row.getName());
+            }
+        }
+
+        Set<String> taken = new HashSet<>();
+        if (!names.isEmpty()) {
+            for (ProductNameInCategory product : productRepository.findNamesInCategoriesByNameIn(names)) {
+                taken.add(product.getCategoryId() + ":" + product.getName());
+            }
+        }
+        return taken;
+    }
+
+    private void fail(ImportState state, Listener listener, long line, String message) {
+        state.failed++;
+        listener.rowFailed(line, message);
+    }
+
+    /**
+     * Splits a CSV line on commas. Values may be enclosed in double quotes, in which case they can contain commas
+     * and escaped ({@code ""}) quotes; values spanning several lines are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted value");
+        }
+        values.add(current.toString().trim());
+
+        return values;
+    }
+
+    @AllArgsConstructor
+    private static final class NumberedRow {
+
+        private final long line;
+
+        private final CatalogImportRow row;
+
+    }
+
+    private static final class ImportState {
+
+        private final Map<String, Long> categoryIds = new HashMap<>();
+
+        private long processed;
+
+        private long created;
+
+        private long failed;
+
+        private CatalogImportProgress toProgress() {
+            return new CatalogImportProgress(processed, created, failed);
+        }
+
+    }
+
+}
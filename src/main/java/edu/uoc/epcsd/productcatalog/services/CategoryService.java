@@ -1,51 +1,151 @@
 package edu.uoc.epcsd.productcatalog.services;
 
+import edu.uoc.epcsd.productcatalog.config.ReplicaRoutingDataSource;
 import edu.uoc.epcsd.productcatalog.entities.Category;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.kafka.CatalogChangePublisher;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryItemCountRepository;
 import edu.uoc.epcsd.productcatalog.repositories.CategoryRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategorySummary;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class CategoryService {
 
+    private static final String SELECT_CATEGORY_TREE = "SELECT id, name, description, parent_id FROM category";
+
     @Autowired
     private CategoryRepository categoryRepository;
 
-    public List<Category> findAll(String name, String description) {
-        return categoryRepository.findByNameAndDescription(name, description);
+    @Autowired
+    private CategoryItemCountRepository categoryItemCountRepository;
+
+    @Autowired
+    @Qualifier("categoryTreeDataSource")
+    private DataSource categoryTreeDataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CatalogChangePublisher catalogChangePublisher;
+
+    // the tree is loaded from the primary, outside of the caller's transaction: a snapshot read from a lagging replica
+    // would miss categories for as long as it is kept
+    private JdbcTemplate treeLoadTemplate;
+
+    // loaded lazily on first use and replaced, never modified, on every change; readers never take the lock
+    private volatile CategoryTree categoryTree;
+
+    private final Object categoryTreeLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        treeLoadTemplate = new JdbcTemplate(categoryTreeDataSource);
+    }
+
+    // the category queries are cached: read from a lagging replica, their results would be cached again right after
+    // a write evicted them, so they are read from the primary
+    @Transactional(readOnly = true)
+    public List<CategorySummary> findAll(String name, String description) {
+        return ReplicaRoutingDataSource.onPrimary(() -> categoryRepository.findSummariesByNameAndDescription(name, description));
     }
 
     public Optional<Category> findById(Long id) {
         return categoryRepository.findById(id);
     }
 
+    /**
+     * A single insert: duplicate names and unknown parents are reported by the database constraints.
+     */
+    @Transactional(rollbackFor = ProductException.class)
     public Category createCategory(Long parentId, String name, String description) throws ProductException {
 
         Category category = Category.builder().name(name).description(description).build();
 
-        if (!findAll(name, null).isEmpty()) {
-            throw new ProductException("Category already exists");
-        }
-
         if (parentId != null) {
-            Optional<Category> parent = categoryRepository.findById(parentId);
+            category.setParent(categoryRepository.getById(parentId));
+        }
 
-            if (parent.isPresent()) {
-                category.setParent(parent.get());
-            } else {
+        Category savedCategory;
+        try {
+            savedCategory = categoryRepository.saveAndFlush(category);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new ProductException("Category already exists");
+            } else if (ConstraintViolations.isForeignKeyViolation(e)) {
                 throw new ProductException("Parent category not found");
             }
+            throw e;
+        }
+        categoryItemCountRepository.createCounts(savedCategory.getId());
+
+        // a rolled back category never shows up in the tree
+        AfterCommit.run(() -> {
+            synchronized (categoryTreeLock) {
+                if (categoryTree != null) {
+                    categoryTree = categoryTree.with(savedCategory);
+                }
+            }
+        });
+        catalogChangePublisher.categoryChanged(savedCategory.getId(), savedCategory.getVersion());
+
+        return savedCategory;
+    }
+
+    @Transactional(readOnly = true)
+    public List<CategorySummary> findAllByParentCategory(Long id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> categoryRepository.findSummariesByParentId(id));
+    }
+
+    public CategoryTree getCategoryTree() {
+        CategoryTree tree = categoryTree;
+        if (tree == null) {
+            synchronized (categoryTreeLock) {
+                tree = categoryTree;
+                if (tree == null) {
+                    tree = CategoryTree.of(treeLoadTemplate.query(SELECT_CATEGORY_TREE, (row, rowNum) -> Category.builder()
+                            .id(row.getLong("id"))
+                            .name(row.getString("name"))
+                            .description(row.getString("description"))
+                            .parent(row.getObject("parent_id") != null ? Category.builder().id(row.getLong("parent_id")).build() : null)
+                            .build()));
+                    categoryTree = tree;
+                }
+            }
         }
+        return tree;
+    }
 
-        return categoryRepository.save(category);
+    /**
+     * Discards the current category tree snapshot, so it is reloaded on next use. Needed after categories are
+     * written without going through {@link #createCategory(Long, String, String)}.
+     */
+    public void invalidateCategoryTree() {
+        synchronized (categoryTreeLock) {
+            categoryTree = null;
+        }
     }
 
-    public List<Category> findAllByParentCategory(Long id) {
-        return categoryRepository.findByParentId(id);
+    /**
+     * Drops what this instance keeps in memory about categories (second-level cache entry, cached category queries,
+     * category tree) after another instance changed one.
+     */
+    public void refreshCategory(Long categoryId) {
+        entityManagerFactory.getCache().evict(Category.class, categoryId);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        invalidateCategoryTree();
     }
 }
@@ -0,0 +1,34 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import lombok.*;
+
+import java.util.Map;
+
+/**
+ * Products, items by status and daily prices of a category together with all of its subcategories. The prices are
+ * null when the subtree has no products.
+ */
+@ToString
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class CategoryStats {
+
+    private final Long categoryId;
+
+    private final String name;
+
+    private final Long parentId;
+
+    private final long products;
+
+    private final Map<ItemStatus, Long> items;
+
+    private final Double minDailyPrice;
+
+    private final Double maxDailyPrice;
+
+    private final Double avgDailyPrice;
+
+}
@@ -0,0 +1,148 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryItemCountRepository;
+import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryItemStatusCount;
+import edu.uoc.epcsd.productcatalog.repositories.projections.CategoryProductStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Statistics of category subtrees. The products and prices of every category on its own come from a GROUP BY over
+ * the products, and its items by status from the counts the item transactions keep up to date, one row per category
+ * and status, so that every instance reports the committed counts without reading the items. Both are then rolled up
+ * through the {@link CategoryTree} snapshot, in time proportional to the number of categories.
+ */
+@Service
+public class CategoryStatsService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryItemCountRepository categoryItemCountRepository;
+
+    /**
+     * Empty if there is no such category.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CategoryStats> getStats(Long categoryId) {
+        CategoryTree tree = categoryService.getCategoryTree();
+        List<Long> subtreeIds = tree.getSubtreeIds(categoryId);
+        if (subtreeIds.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<Long, Totals> totals = load(productRepository.findStatsByCategoryIn(subtreeIds), categoryItemCountRepository.findCountsByCategoryIn(subtreeIds));
+
+        Totals subtree = new Totals();
+        for (Long id : subtreeIds) {
+            subtree.add(totals.get(id));
+        }
+        return tree.get(categoryId).map(subtree::toStats);
+    }
+
+    /**
+     * The statistics of every category, parents before their children.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryStats> getAllStats() {
+        CategoryTree tree = categoryService.getCategoryTree();
+        Map<Long, Totals> totals = load(productRepository.findStatsByCategory(), categoryItemCountRepository.findCounts());
+
+        // walk the tree depth first, adding the totals of every category to its parent once all its children are in
+        List<CategoryTree.Node> preOrder = new ArrayList<>(tree.size());
+        Deque<CategoryTree.Node> pending = new ArrayDeque<>(tree.getRoots());
+        while (!pending.isEmpty()) {
+            CategoryTree.Node node = pending.pop();
+            preOrder.add(node);
+            tree.getChildren(node.getId()).forEach(pending::push);
+        }
+
+        Map<Long, Totals> subtrees = new HashMap<>();
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            CategoryTree.Node node = preOrder.get(i);
+            Totals subtree = subtrees.computeIfAbsent(node.getId(), id -> new Totals());
+            subtree.add(totals.get(node.getId()));
+            if (node.getParentId() != null) {
+                subtrees.computeIfAbsent(node.getParentId(), id -> new Totals()).add(subtree);
+            }
+        }
+
+        List<CategoryStats> stats = new ArrayList<>(preOrder.size());
+        for (CategoryTree.Node node : preOrder) {
+            stats.add(subtrees.get(node.getId()).toStats(node));
+        }
+        return stats;
+    }
+
+    private Map<Long, Totals> load(List<CategoryProductStats> productStats, List<CategoryItemStatusCount> itemCounts) {
+        Map<Long, Totals> totals = new HashMap<>();
+        for (CategoryProductStats categoryStats : productStats) {
+            Totals categoryTotals = totals.computeIfAbsent(categoryStats.getCategoryId(), id -> new Totals());
+            categoryTotals.products = categoryStats.getProducts();
+            categoryTotals.minDailyPrice = categoryStats.getMinDailyPrice();
+            categoryTotals.maxDailyPrice = categoryStats.getMaxDailyPrice();
+            categoryTotals.dailyPriceSum = categoryStats.getDailyPriceSum() != null ? categoryStats.getDailyPriceSum() : 0;
+        }
+
+        for (CategoryItemStatusCount itemCount : itemCounts) {
+            Totals categoryTotals = totals.computeIfAbsent(itemCount.getCategoryId(), id -> new Totals());
+            if (itemCount.getStatus() == ItemStatus.OPERATIONAL) {
+                categoryTotals.operationalItems += itemCount.getTotal();
+            } else {
+                categoryTotals.nonOperationalItems += itemCount.getTotal();
+            }
+        }
+
+        return totals;
+    }
+
+    private static final class Totals {
+
+        private long products;
+
+        private long operationalItems;
+
+        private long nonOperationalItems;
+
+        private Double minDailyPrice;
+
+        private Double maxDailyPrice;
+
+        private double dailyPriceSum;
+
+        private void add(Totals other) {
+            if (other == null) {
+                return;
+            }
+            products += other.products;
+            operationalItems += other.operationalItems;
+            nonOperationalItems += other.nonOperationalItems;
+            dailyPriceSum += other.dailyPriceSum;
+            if (other.minDailyPrice != null && (minDailyPrice == null || other.minDailyPrice < minDailyPrice)) {
+                minDailyPrice = other.minDailyPrice;
+            }
+            if (other.maxDailyPrice != null && (maxDailyPrice == null || other.maxDailyPrice > maxDailyPrice)) {
+                maxDailyPrice = other.maxDailyPrice;
+            }
+        }
+
+        private CategoryStats toStats(CategoryTree.Node node) {
+            Map<ItemStatus, Long> items = new EnumMap<>(ItemStatus.class);
+            items.put(ItemStatus.OPERATIONAL, operationalItems);
+            items.put(ItemStatus.NON_OPERATIONAL, nonOperationalItems);
+            return new CategoryStats(node.getId(), node.getName(), node.getParentId(), products, items, minDailyPrice, maxDailyPrice,
+                    products > 0 ? dailyPriceSum / products : null);
+        }
+
+    }
+
+}
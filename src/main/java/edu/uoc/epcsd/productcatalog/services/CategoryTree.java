@@ -0,0 +1,179 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.*;
+
+/**
+ * Immutable snapshot of the whole category hierarchy. Changes never modify a snapshot in place, they produce a new
+ * one (see {@link #with(Category)}), so readers can walk a snapshot without any locking.
+ */
+public final class CategoryTree {
+
+    private final Map<Long, Node> nodes;
+
+    private final Map<Long, List<Long>> children;
+
+    private final List<Long> roots;
+
+    private CategoryTree(Map<Long, Node> nodes, Map<Long, List<Long>> children, List<Long> roots) {
+        this.nodes = nodes;
+        this.children = children;
+        this.roots = roots;
+    }
+
+    public static CategoryTree of(Collection<Category> categories) {
+        Map<Long, Node> nodes = new HashMap<>();
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+
+        for (Category category : categories) {
+            Node node = Node.fromDomain(category);
+            nodes.put(node.getId(), node);
+            if (node.getParentId() == null) {
+                roots.add(node.getId());
+            } else {
+                children.computeIfAbsent(node.getParentId(), id -> new ArrayList<>()).add(node.getId());
+            }
+        }
+
+        children.replaceAll((id, ids) -> Collections.unmodifiableList(ids));
+
+        return new CategoryTree(nodes, children, Collections.unmodifiableList(roots));
+    }
+
+    /**
+     * Returns a new snapshot that also contains the given category (replacing it if it was already there), leaving
+     * this one untouched.
+     */
+    public CategoryTree with(Category category) {
+        Node node = Node.fromDomain(category);
+        Node previous = nodes.get(node.getId());
+        if (node.equals(previous)) {
+            return this;
+        }
+
+        Map<Long, Node> nodes = new HashMap<>(this.nodes);
+        nodes.put(node.getId(), node);
+
+        Map<Long, List<Long>> children = new HashMap<>(this.children);
+        List<Long> roots = this.roots;
+
+        if (previous != null) {
+            if (previous.getParentId() == null) {
+                roots = remove(roots, previous.getId());
+            } else {
+                children.put(previous.getParentId(), remove(children.get(previous.getParentId()), previous.getId()));
+            }
+        }
+
+        if (node.getParentId() == null) {
+            roots = append(roots, node.getId());
+        } else {
+            children.put(node.getParentId(), append(children.getOrDefault(node.getParentId(), List.of()), node.getId()));
+        }
+
+        return new CategoryTree(nodes, children, roots);
+    }
+
+    public Optional<Node> get(Long id) {
+        return Optional.ofNullable(nodes.get(id));
+    }
+
+    public List<Node> getRoots() {
+        return toNodes(roots);
+    }
+
+    public List<Node> getChildren(Long id) {
+        return toNodes(children.getOrDefault(id, List.of()));
+    }
+
+    /**
+     * Ids of the given category and all of its descendants, in O(size of the subtree). Empty if the category is not
+     * part of this snapshot.
+     */
+    public List<Long> getSubtreeIds(Long id) {
+        if (!nodes.containsKey(id)) {
+            return List.of();
+        }
+
+        List<Long> subtree = new ArrayList<>();
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.push(id);
+        while (!pending.isEmpty()) {
+            Long current = pending.pop();
+            subtree.add(current);
+            children.getOrDefault(current, List.of()).forEach(pending::push);
+        }
+
+        return subtree;
+    }
+
+    /**
+     * Nodes from the root of the hierarchy down to the given category, empty if the category is not part of this
+     * snapshot.
+     */
+    public List<Node> getPath(Long id) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = nodes.get(id);
+        while (node != null) {
+            path.addFirst(node);
+            node = node.getParentId() != null ? nodes.get(node.getParentId()) : null;
+        }
+        return new ArrayList<>(path);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    private List<Node> toNodes(List<Long> ids) {
+        List<Node> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+
+    private static List<Long> append(List<Long> ids, Long id) {
+        List<Long> copy = new ArrayList<>(ids.size() + 1);
+        copy.addAll(ids);
+        copy.add(id);
+        return Collections.unmodifiableList(copy);
+    }
+
+    private static List<Long> remove(List<Long> ids, Long id) {
+        List<Long> copy = new ArrayList<>(ids);
+        copy.remove(id);
+        return Collections.unmodifiableList(copy);
+    }
+
+    @ToString
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static final class Node {
+
+        private final Long id;
+
+        private final String name;
+
+        private final String description;
+
+        private final Long parentId;
+
+        static Node fromDomain(Category category) {
+            return new Node(
+                    category.getId(),
+                    category.getName(),
+                    category.getDescription(),
+                    category.getParent() != null ? category.getParent().getId() : null);
+        }
+
+    }
+
+}
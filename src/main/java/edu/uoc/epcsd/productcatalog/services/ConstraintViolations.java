@@ -0,0 +1,42 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells which kind of constraint a failed insert violated, from the SQLState the database reported. Creates rely on
+ * the unique and foreign key constraints instead of checking beforehand, so they take a single round trip and cannot
+ * race with each other.
+ */
+final class ConstraintViolations {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // PostgreSQL reports a missing referenced row as 23503, H2 as 23506
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private static final String H2_REFERENCED_ROW_MISSING = "23506";
+
+    private ConstraintViolations() {
+    }
+
+    static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return UNIQUE_VIOLATION.equals(sqlState(e));
+    }
+
+    static boolean isForeignKeyViolation(DataIntegrityViolationException e) {
+        String sqlState = sqlState(e);
+        return FOREIGN_KEY_VIOLATION.equals(sqlState) || H2_REFERENCED_ROW_MISSING.equals(sqlState);
+    }
+
+    private static String sqlState(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return ((SQLException) cause).getSQLState();
+            }
+        }
+        return null;
+    }
+
+}
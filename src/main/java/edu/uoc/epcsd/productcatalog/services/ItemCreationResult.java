@@ -0,0 +1,9 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+public enum ItemCreationResult {
+
+    CREATED,
+    DUPLICATE,
+    UNKNOWN_PRODUCT;
+
+}
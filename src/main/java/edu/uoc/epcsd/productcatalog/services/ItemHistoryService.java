@@ -0,0 +1,104 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatusChange;
+import edu.uoc.epcsd.productcatalog.repositories.ItemStatusChangeRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductDowntime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the append-only history of item statuses. Changes are collected while the transaction that makes them runs
+ * and inserted right before it commits, in JDBC batches, so registering many items costs a few round trips rather
+ * than one per item. Downtime is aggregated by the database.
+ */
+@Service
+public class ItemHistoryService {
+
+    @Autowired
+    private ItemStatusChangeRepository itemStatusChangeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${productcatalog.items.history.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    private final Object pendingChangesKey = new Object();
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(String serialNumber, Long productId, ItemStatus status) {
+        pendingChanges().add(ItemStatusChange.builder()
+                .serialNumber(serialNumber)
+                .productId(productId)
+                .status(status)
+                .changedAt(Instant.now())
+                .build());
+    }
+
+    @Transactional(readOnly = true)
+    public List<ItemStatusChange> getTimeline(String serialNumber, Instant from, Instant to) {
+        return itemStatusChangeRepository.findTimeline(serialNumber, from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDowntime> getDowntime(Instant from, Instant to) {
+        return itemStatusChangeRepository.findDowntime(from.toEpochMilli(), to.toEpochMilli());
+    }
+
+    @Transactional(readOnly = true)
+    public long getDowntimeMillis(Long productId, Instant from, Instant to) {
+        return itemStatusChangeRepository.findDowntimeByProductId(productId, from.toEpochMilli(), to.toEpochMilli())
+                .map(ProductDowntime::getDowntimeMillis)
+                .orElse(0L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ItemStatusChange> pendingChanges() {
+        List<ItemStatusChange> changes = (List<ItemStatusChange>) TransactionSynchronizationManager.getResource(pendingChangesKey);
+        if (changes != null) {
+            return changes;
+        }
+
+        List<ItemStatusChange> newChanges = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(pendingChangesKey, newChanges);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insert(newChanges);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(pendingChangesKey);
+            }
+
+        });
+        return newChanges;
+    }
+
+    private void insert(List<ItemStatusChange> changes) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO item_status_change (serial_number, product_id, status, changed_at) VALUES (?, ?, ?, ?)",
+                changes,
+                jdbcBatchSize,
+                (statement, change) -> {
+                    statement.setString(1, change.getSerialNumber());
+                    statement.setLong(2, change.getProductId());
+                    statement.setString(3, change.getStatus().name());
+                    statement.setLong(4, change.getChangedAt().toEpochMilli());
+                });
+    }
+
+}
@@ -2,20 +2,23 @@ package edu.uoc.epcsd.productcatalog.services;
 
 import edu.uoc.epcsd.productcatalog.entities.Item;
 import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
-import edu.uoc.epcsd.productcatalog.entities.Product;
 import edu.uoc.epcsd.productcatalog.exceptions.MissingProductException;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
-import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
-import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryItemCountRepository;
 import edu.uoc.epcsd.productcatalog.repositories.ItemRepository;
+import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ItemSummary;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestBody;
 
-import java.util.List;
-import java.util.MissingResourceException;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ItemService {
@@ -23,20 +26,63 @@ public class ItemService {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private ProductRepository productRepository;
+
     @Autowired
     private ProductService productService;
 
     @Autowired
-    private KafkaTemplate<String, ProductMessage> productKafkaTemplate;
+    private OutboxService outboxService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ItemHistoryService itemHistoryService;
+
+    @Autowired
+    private CategoryItemCountRepository categoryItemCountRepository;
 
-    public List<Item> findAll() {
-        return itemRepository.findAll();
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${productcatalog.items.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${productcatalog.items.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Transactional(readOnly = true)
+    public List<ItemSummary> findPage(String after, int limit, ItemStatus status, Long productId) {
+        return itemRepository.findPage(after, status, productId, limit);
+    }
+
+    /**
+     * Hands every matching item to the consumer as it is read from the database cursor. Rows are read as
+     * projections, not entities, so the persistence context does not grow with the size of the table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(ItemStatus status, Long productId, Consumer<ItemSummary> consumer) {
+        try (Stream<ItemSummary> items = itemRepository.streamAll(status, productId)) {
+            items.forEach(consumer);
+        }
     }
 
     public Optional<Item> findBySerialNumber(String serialNumber) {
         return itemRepository.findBySerialNumber(serialNumber);
     }
 
+    public Optional<Long> findVersion(String serialNumber) {
+        return itemRepository.findVersionBySerialNumber(serialNumber);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ItemSummary> findSummaryBySerialNumber(String serialNumber) {
+        return itemRepository.findSummaryBySerialNumber(serialNumber);
+    }
+
+    @Transactional
     public Item setOperational(String serialNumber, @RequestBody Boolean operational) throws ProductException, MissingProductException {
         Item item = findBySerialNumber(serialNumber).orElseThrow(
                 () -> new MissingProductException("Could not find the item with serial number: " + serialNumber)
@@ -52,34 +98,123 @@ public class ItemService {
 
         item = itemRepository.save(item);
 
+        // always the operational count first, so that concurrent transactions lock the rows in the same order
+        long operationalDelta = item.getStatus() == ItemStatus.OPERATIONAL ? 1 : -1;
+        categoryItemCountRepository.addProductItems(item.getProduct().getId(), ItemStatus.OPERATIONAL, operationalDelta);
+        categoryItemCountRepository.addProductItems(item.getProduct().getId(), ItemStatus.NON_OPERATIONAL, -operationalDelta);
+
+        availabilityService.statusChanged(item.getProduct().getId(), item.getStatus());
+        itemHistoryService.statusChanged(item.getSerialNumber(), item.getProduct().getId(), item.getStatus());
+
         if (item.getStatus().equals(ItemStatus.OPERATIONAL)) {
-            productKafkaTemplate.send(KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE, ProductMessage.builder().productId(item.getProduct().getId()).build());
+            outboxService.unitAvailable(item.getProduct().getId());
         }
 
         return item;
     }
 
+    /**
+     * A single insert: repeated serial numbers and unknown products are reported by the database constraints.
+     */
+    @Transactional(rollbackFor = ProductException.class)
     public Item createItem(Long productId, String serialNumber) throws ProductException {
 
-        // bu default a new unit is OPERATIONAL
-        Item item = Item.builder().serialNumber(serialNumber).status(ItemStatus.OPERATIONAL).build();
+        // by default a new unit is OPERATIONAL
+        Item item = Item.builder()
+                .serialNumber(serialNumber)
+                .status(ItemStatus.OPERATIONAL)
+                .product(productRepository.getById(productId))
+                .build();
+
+        Item savedItem;
+        try {
+            savedItem = itemRepository.saveAndFlush(item);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new ProductException("Item with serial number " + serialNumber + " already exists");
+            } else if (ConstraintViolations.isForeignKeyViolation(e)) {
+                throw new ProductException("Could not find the product with Id: " + productId);
+            }
+            throw e;
+        }
+
+        categoryItemCountRepository.addProductItems(productId, ItemStatus.OPERATIONAL, 1);
+        availabilityService.itemsCreated(productId, 1);
+        itemHistoryService.statusChanged(serialNumber, productId, ItemStatus.OPERATIONAL);
+        outboxService.unitAvailable(productId);
 
-        if (itemRepository.findBySerialNumber(serialNumber).isPresent()) {
-            throw new ProductException("Item with serial number " + serialNumber + " already exists");
+        return savedItem;
+    }
+
+    /**
+     * Registers many items at once. Serial numbers and products are checked with one query each, new items are
+     * inserted with JDBC batching and a single unit_available event is recorded per product that got new units.
+     *
+     * @return the outcome of every item, in the same order
+     */
+    @Transactional
+    public List<ItemCreationResult> createItems(List<NewItem> newItems) throws ProductException {
+        if (newItems.size() > maxBatchSize) {
+            throw new ProductException("At most " + maxBatchSize + " items can be created at once");
         }
 
-        Optional<Product> product = productService.findById(productId);
+        Set<String> serialNumbers = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        for (NewItem newItem : newItems) {
+            if (newItem.getSerialNumber() == null || newItem.getProductId() == null) {
+                throw new ProductException("Every item needs a product id and a serial number");
+            }
+            serialNumbers.add(newItem.getSerialNumber());
+            productIds.add(newItem.getProductId());
+        }
 
-        if (product.isPresent()) {
-            item.setProduct(product.get());
-        } else {
-            throw new ProductException("Could not find the product with Id: " + productId);
+        Set<String> takenSerialNumbers = serialNumbers.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(itemRepository.findExistingSerialNumbers(serialNumbers));
+        Map<Long, Long> categoryIds = productService.findCategoryIds(productIds);
+
+        List<ItemCreationResult> results = new ArrayList<>(newItems.size());
+        List<NewItem> created = new ArrayList<>();
+        Map<Long, Long> newUnitsByProduct = new LinkedHashMap<>();
+        // by category id, so that concurrent transactions lock the category counts in the same order
+        Map<Long, Long> newUnitsByCategory = new TreeMap<>();
+
+        for (NewItem newItem : newItems) {
+            if (!categoryIds.containsKey(newItem.getProductId())) {
+                results.add(ItemCreationResult.UNKNOWN_PRODUCT);
+            } else if (!takenSerialNumbers.add(newItem.getSerialNumber())) {
+                // already stored, or repeated within this same batch
+                results.add(ItemCreationResult.DUPLICATE);
+            } else {
+                results.add(ItemCreationResult.CREATED);
+                created.add(newItem);
+                newUnitsByProduct.merge(newItem.getProductId(), 1L, Long::sum);
+                newUnitsByCategory.merge(categoryIds.get(newItem.getProductId()), 1L, Long::sum);
+            }
         }
 
-        Item savedItem = itemRepository.save(item);
+        // by default a new unit is OPERATIONAL
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO item (serial_number, version, status, product_id) VALUES (?, 0, ?, ?)",
+                created,
+                jdbcBatchSize,
+                (statement, newItem) -> {
+                    statement.setString(1, newItem.getSerialNumber());
+                    statement.setString(2, ItemStatus.OPERATIONAL.name());
+                    statement.setLong(3, newItem.getProductId());
+                });
+
+        for (NewItem newItem : created) {
+            itemHistoryService.statusChanged(newItem.getSerialNumber(), newItem.getProductId(), ItemStatus.OPERATIONAL);
+        }
 
-        productKafkaTemplate.send(KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE, ProductMessage.builder().productId(productId).build());
+        newUnitsByCategory.forEach((categoryId, units) -> categoryItemCountRepository.addItems(categoryId, ItemStatus.OPERATIONAL, units));
 
-        return savedItem;
+        newUnitsByProduct.forEach((productId, units) -> {
+            availabilityService.itemsCreated(productId, units);
+            outboxService.unitAvailable(productId);
+        });
+
+        return results;
     }
 }
@@ -0,0 +1,18 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import lombok.*;
+
+/**
+ * A unit to register with {@link ItemService#createItems}.
+ */
+@ToString
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class NewItem {
+
+    private final Long productId;
+
+    private final String serialNumber;
+
+}
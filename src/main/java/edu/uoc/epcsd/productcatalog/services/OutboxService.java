@@ -0,0 +1,32 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.OutboxEvent;
+import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
+import edu.uoc.epcsd.productcatalog.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Records events in the outbox table. Events must be written in the same transaction as the change they announce,
+ * they are published later by the {@link edu.uoc.epcsd.productcatalog.kafka.OutboxRelay}.
+ */
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent unitAvailable(Long productId) {
+        return outboxEventRepository.save(OutboxEvent.builder()
+                .topic(KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE)
+                .productId(productId)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+}
@@ -0,0 +1,21 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import lombok.*;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class ProductAvailability {
+
+    private final Long productId;
+
+    private final long operational;
+
+    private final long nonOperational;
+
+    public static ProductAvailability none(Long productId) {
+        return new ProductAvailability(productId, 0, 0);
+    }
+
+}
@@ -0,0 +1,83 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A product together with the name of its category and the names of the categories above it, as it is cached,
+ * indexed for search and returned by the product queries.
+ */
+@ToString
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+public final class ProductDetails {
+
+    private final Long id;
+
+    private final Long version;
+
+    private final String name;
+
+    private final String description;
+
+    private final Double dailyPrice;
+
+    private final String brand;
+
+    private final String model;
+
+    private final Long categoryId;
+
+    private final String categoryName;
+
+    // category names from the root of the hierarchy down to the product category
+    private final List<String> categoryPath;
+
+    /**
+     * Only the id of the product category is read, so a lazy category is never loaded; its name and path come from
+     * the category tree.
+     */
+    public static ProductDetails fromDomain(Product product, CategoryTree categoryTree) {
+        return withCategory(ProductDetails.builder()
+                .id(product.getId())
+                .version(product.getVersion())
+                .name(product.getName())
+                .description(product.getDescription())
+                .dailyPrice(product.getDailyPrice())
+                .brand(product.getBrand())
+                .model(product.getModel()), product.getCategory().getId(), categoryTree);
+    }
+
+    public static ProductDetails fromSummary(ProductSummary product, CategoryTree categoryTree) {
+        return withCategory(ProductDetails.builder()
+                .id(product.getId())
+                .version(product.getVersion())
+                .name(product.getName())
+                .description(product.getDescription())
+                .dailyPrice(product.getDailyPrice())
+                .brand(product.getBrand())
+                .model(product.getModel()), product.getCategoryId(), categoryTree);
+    }
+
+    private static ProductDetails withCategory(ProductDetailsBuilder builder, Long categoryId, CategoryTree categoryTree) {
+        List<CategoryTree.Node> path = categoryTree.getPath(categoryId);
+
+        List<String> categoryPath = new ArrayList<>(path.size());
+        for (CategoryTree.Node node : path) {
+            categoryPath.add(node.getName());
+        }
+
+        return builder
+                .categoryId(categoryId)
+                .categoryName(path.isEmpty() ? null : path.get(path.size() - 1).getName())
+                .categoryPath(categoryPath)
+                .build();
+    }
+
+}
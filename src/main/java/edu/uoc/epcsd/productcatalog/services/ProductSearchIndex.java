@@ -0,0 +1,849 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product name, description, brand and model. Text is lower-cased and accent-folded
+ * ("Cámaras" matches "camaras") and split on anything that is not a letter or a digit. Query terms match indexed
+ * terms exactly or, with a lower weight, as a prefix ("220" matches "220l"); documents are ranked by the weighted
+ * tf-idf of the matched terms, favouring documents that match more of the query terms.
+ * <p>
+ * Products are numbered with dense ordinals, and every term keeps the ordinals of its products in ascending order
+ * with their weights in primitive arrays, along with the highest of those weights. Queries walk the postings of their
+ * terms a document at a time and, once the requested page is filled, skip the products that the terms they match
+ * cannot lift into it (MaxScore).
+ * <p>
+ * Changes made inside a transaction are applied once it commits, so a rolled back write leaves the index untouched.
+ */
+@Log4j2
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+
+    private static final float BRAND_WEIGHT = 2f;
+
+    private static final float MODEL_WEIGHT = 2f;
+
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final float PREFIX_MATCH_WEIGHT = 0.5f;
+
+    // prefixes shorter than this would expand to too many terms to be useful
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los", "o", "para", "por", "sin", "un", "una", "y");
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by the lock
+    private Index current = new Index();
+
+    // the changes applied while a rebuild reads the products, replayed on the rebuilt index before it replaces the
+    // current one; null when no rebuild is running. Guarded by the lock.
+    private List<Consumer<Index>> changesDuringRebuild;
+
+    /**
+     * Reads every product into a new index while the current one keeps answering queries. Changes committed while
+     * the products are read may be missing from what was read, so they are replayed on the new index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index rebuilt = new Index();
+        boolean loaded = false;
+        int indexed = 0;
+        try {
+            CategoryTree categoryTree = categoryService.getCategoryTree();
+            productRepository.findSummaries(null, null).forEach(product -> rebuilt.put(ProductDetails.fromSummary(product, categoryTree)));
+            rebuilt.renumber();
+            loaded = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (loaded) {
+                    changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+                    current = rebuilt;
+                    indexed = rebuilt.size();
+                }
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        log.info("Indexed " + indexed + " products for search");
+    }
+
+    public void index(ProductDetails product) {
+        AfterCommit.run(() -> apply(index -> index.put(product)));
+    }
+
+    public void remove(Long productId) {
+        AfterCommit.run(() -> apply(index -> index.remove(productId)));
+    }
+
+    public ProductSearchResult search(String query, int page, int size) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty()) {
+            return new ProductSearchResult(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            return current.search(queryTerms, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return current.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(current);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The postings and documents of the index. Not thread-safe: writes need the write lock of the enclosing index,
+     * queries its read lock.
+     * <p>
+     * Ordinals follow the product ids, so that a product seen later in a query loses a tie to every hit already
+     * found. Removed products leave a gap and a product indexed with a lower id than the last one gets an ordinal out
+     * of order; both are fixed by renumbering the products once there are enough of them.
+     */
+    private static final class Index {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        // term -> ordinals and weights of the products containing it
+        private final NavigableMap<String, Postings> postings = new TreeMap<>();
+
+        // product id -> ordinal
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+
+        // the following are indexed by ordinal, and empty for the ordinals of removed products
+        private ProductDetails[] documents = new ProductDetails[INITIAL_CAPACITY];
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+
+        private String[][] documentTerms = new String[INITIAL_CAPACITY][];
+
+        // ordinals handed out since the last renumbering, those of removed products included
+        private int ordinalCount;
+
+        private long maxId = Long.MIN_VALUE;
+
+        private boolean idOrdered = true;
+
+        // removed products and products given an ordinal out of id order since the last renumbering
+        private int misplaced;
+
+        private int size() {
+            return ordinals.size();
+        }
+
+        private void put(ProductDetails product) {
+            Integer ordinal = ordinals.get(product.getId());
+            if (ordinal != null) {
+                // an update keeps its ordinal
+                removePostings(ordinal);
+            } else {
+                ordinal = newOrdinal(product.getId());
+                ordinals.put(product.getId(), ordinal);
+            }
+
+            Map<String, Float> weights = new HashMap<>();
+            addTerms(weights, product.getName(), NAME_WEIGHT);
+            addTerms(weights, product.getBrand(), BRAND_WEIGHT);
+            addTerms(weights, product.getModel(), MODEL_WEIGHT);
+            addTerms(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+            int productOrdinal = ordinal;
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new Postings()).add(productOrdinal, weight));
+            documents[ordinal] = product;
+            ids[ordinal] = product.getId();
+            documentTerms[ordinal] = weights.keySet().toArray(new String[0]);
+
+            renumberIfMisplaced();
+        }
+
+        private void remove(Long productId) {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+
+            removePostings(ordinal);
+            documents[ordinal] = null;
+            documentTerms[ordinal] = null;
+            misplaced++;
+
+            renumberIfMisplaced();
+        }
+
+        private void removePostings(int ordinal) {
+            for (String term : documentTerms[ordinal]) {
+                Postings termPostings = postings.get(term);
+                termPostings.remove(ordinal);
+                if (termPostings.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        private int newOrdinal(long productId) {
+            if (productId < maxId) {
+                idOrdered = false;
+                misplaced++;
+            } else {
+                maxId = productId;
+            }
+
+            if (ordinalCount == documents.length) {
+                int capacity = documents.length * 2;
+                documents = Arrays.copyOf(documents, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                documentTerms = Arrays.copyOf(documentTerms, capacity);
+            }
+            return ordinalCount++;
+        }
+
+        // every posting is rewritten, so it is only done once a quarter of the products are misplaced
+        private void renumberIfMisplaced() {
+            if (misplaced > Math.max(size() / 4, INITIAL_CAPACITY)) {
+                renumber();
+            }
+        }
+
+        /**
+         * Numbers the products from 0 in id order, leaving no gaps.
+         */
+        private void renumber() {
+            if (misplaced == 0) {
+                return;
+            }
+
+            long[] sortedIds = new long[size()];
+            int count = 0;
+            for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+                if (documents[ordinal] != null) {
+                    sortedIds[count++] = ids[ordinal];
+                }
+            }
+            Arrays.sort(sortedIds);
+
+            int[] renumbered = new int[ordinalCount];
+            ProductDetails[] newDocuments = new ProductDetails[Math.max(INITIAL_CAPACITY, sortedIds.length)];
+            long[] newIds = new long[newDocuments.length];
+            String[][] newDocumentTerms = new String[newDocuments.length][];
+            for (int newOrdinal = 0; newOrdinal < sortedIds.length; newOrdinal++) {
+                int ordinal = ordinals.get(sortedIds[newOrdinal]);
+                renumbered[ordinal] = newOrdinal;
+                newDocuments[newOrdinal] = documents[ordinal];
+                newIds[newOrdinal] = ids[ordinal];
+                newDocumentTerms[newOrdinal] = documentTerms[ordinal];
+                ordinals.put(sortedIds[newOrdinal], newOrdinal);
+            }
+
+            for (Postings termPostings : postings.values()) {
+                termPostings.renumber(renumbered);
+            }
+
+            documents = newDocuments;
+            ids = newIds;
+            documentTerms = newDocumentTerms;
+            ordinalCount = sortedIds.length;
+            maxId = sortedIds.length > 0 ? sortedIds[sortedIds.length - 1] : Long.MIN_VALUE;
+            idOrdered = true;
+            misplaced = 0;
+        }
+
+        private ProductSearchResult search(List<String> queryTerms, int page, int size) {
+            Cursor[] cursors = new Cursor[queryTerms.size()];
+            int cursorCount = 0;
+
+            int words = (ordinalCount + Long.SIZE - 1) / Long.SIZE;
+            long[] matches = new long[words];
+            float[] bestScores = null;
+            for (int t = 0; t < queryTerms.size(); t++) {
+                String queryTerm = queryTerms.get(t);
+                List<Postings> prefixed = new ArrayList<>();
+                if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+                    prefixed.addAll(postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).values());
+                }
+
+                Postings exact = postings.get(queryTerm);
+                if (prefixed.isEmpty()) {
+                    if (exact != null) {
+                        float idf = idf(exact);
+                        cursors[cursorCount++] = new Cursor(t, exact.documents, exact.weights, exact.size, idf, exact.maxWeight * idf);
+                    }
+                } else {
+                    if (bestScores == null) {
+                        bestScores = new float[ordinalCount];
+                    }
+                    cursors[cursorCount++] = merge(t, exact, prefixed, matches, bestScores);
+                }
+            }
+
+            long total = countMatches(cursors, cursorCount, words);
+            long wanted = Math.min((long) (page + 1) * size, total);
+            if ((long) page * size >= wanted) {
+                return new ProductSearchResult(total, List.of());
+            }
+
+            TopHits topHits = topHits(cursors, cursorCount, queryTerms.size(), (int) wanted, words);
+
+            List<ProductDetails> hits = new ArrayList<>(size);
+            for (int i = page * size; i < topHits.size; i++) {
+                hits.add(documents[topHits.documents[i]]);
+            }
+            return new ProductSearchResult(total, hits);
+        }
+
+        /**
+         * The products matching a query term exactly or as a prefix of other terms, in ordinal order. A product
+         * matching in several ways (e.g. exactly and as a prefix) keeps its best match only.
+         */
+        private Cursor merge(int queryTerm, Postings exact, List<Postings> prefixed, long[] matched, float[] bestScores) {
+            int candidates = exact != null ? exact.size : 0;
+            if (exact != null) {
+                collect(exact, idf(exact), matched, bestScores);
+            }
+            for (Postings termPostings : prefixed) {
+                candidates += termPostings.size;
+                collect(termPostings, idf(termPostings) * PREFIX_MATCH_WEIGHT, matched, bestScores);
+            }
+
+            int[] merged = new int[candidates];
+            float[] scores = new float[candidates];
+            int count = 0;
+            float maxScore = 0;
+            for (int word = 0; word < matched.length; word++) {
+                long bits = matched[word];
+                while (bits != 0) {
+                    int ordinal = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    merged[count] = ordinal;
+                    scores[count++] = bestScores[ordinal];
+                    maxScore = Math.max(maxScore, bestScores[ordinal]);
+                    bestScores[ordinal] = 0;
+                    bits &= bits - 1;
+                }
+                matched[word] = 0;
+            }
+            return new Cursor(queryTerm, merged, scores, count, 1f, maxScore);
+        }
+
+        private static void collect(Postings termPostings, float factor, long[] matched, float[] bestScores) {
+            for (int i = 0; i < termPostings.size; i++) {
+                int ordinal = termPostings.documents[i];
+                matched[ordinal / Long.SIZE] |= 1L << ordinal;
+                bestScores[ordinal] = Math.max(bestScores[ordinal], termPostings.weights[i] * factor);
+            }
+        }
+
+        // the number of products matching any of the query terms
+        private static long countMatches(Cursor[] cursors, int cursorCount, int words) {
+            if (cursorCount == 1) {
+                return cursors[0].size;
+            }
+
+            long[][] matched = new long[cursorCount][];
+            for (int c = 0; c < cursorCount; c++) {
+                matched[c] = cursors[c].bits(words);
+            }
+
+            long total = 0;
+            for (int word = 0; word < words; word++) {
+                long bits = 0;
+                for (int c = 0; c < cursorCount; c++) {
+                    bits |= matched[c][word];
+                }
+                total += Long.bitCount(bits);
+            }
+            return total;
+        }
+
+        /**
+         * Scores the products a document at a time. The cursors are sorted by their highest score; once the heap is
+         * full, the leading ones that together cannot lift a product into it become non-essential: products are only
+         * taken from the essential cursors, and looked up in the non-essential ones while they can still make it.
+         * Products missing a term that no product can make it without are skipped altogether.
+         */
+        private TopHits topHits(Cursor[] cursors, int cursorCount, int queryTermCount, int wanted, int words) {
+            Arrays.sort(cursors, 0, cursorCount, Comparator.comparingDouble(cursor -> cursor.maxScore));
+
+            // the position of each query term among the sorted cursors, -1 for the terms matching nothing
+            int[] ranks = new int[queryTermCount];
+            float[] maxScores = new float[queryTermCount];
+            Arrays.fill(ranks, -1);
+            for (int i = 0; i < cursorCount; i++) {
+                ranks[cursors[i].queryTerm] = i;
+                maxScores[cursors[i].queryTerm] = cursors[i].maxScore;
+            }
+
+            // the score of each query term for the current product
+            float[] termScores = new float[queryTermCount];
+            float[] noScores = new float[queryTermCount];
+
+            // the products in every cursor whose term no product can make it without, null while there are none
+            boolean[] required = new boolean[cursorCount];
+            long[] candidates = null;
+
+            TopHits topHits = new TopHits(wanted, ids);
+            int firstEssential = 0;
+            int ordinal = nextCandidate(cursors, cursorCount, firstEssential, candidates, 0);
+            while (ordinal != Cursor.EXHAUSTED) {
+                int matchedTerms = 0;
+                for (int i = firstEssential; i < cursorCount; i++) {
+                    Cursor cursor = cursors[i];
+                    if (cursor.document() == ordinal) {
+                        termScores[cursor.queryTerm] = cursor.score();
+                        matchedTerms++;
+                        cursor.next();
+                    }
+                }
+
+                boolean competitive = true;
+                for (int i = firstEssential - 1; i >= 0 && competitive; i--) {
+                    competitive = topHits.accepts(bound(termScores, ranks, maxScores, i, matchedTerms), ordinal);
+                    if (competitive) {
+                        Cursor cursor = cursors[i];
+                        cursor.advance(ordinal);
+                        if (cursor.document() == ordinal) {
+                            termScores[cursor.queryTerm] = cursor.score();
+                            matchedTerms++;
+                        }
+                    }
+                }
+
+                boolean offered = competitive && topHits.offer(ordinal, score(termScores, matchedTerms));
+                Arrays.fill(termScores, 0);
+
+                if (offered && topHits.isFull()) {
+                    while (firstEssential < cursorCount && !canMakeIt(bound(noScores, ranks, maxScores, firstEssential, 0), topHits)) {
+                        firstEssential++;
+                    }
+                    boolean moreRequired = false;
+                    for (int i = 0; i < cursorCount; i++) {
+                        if (!required[i] && !canMakeIt(boundWithout(ranks, maxScores, i, cursorCount), topHits)) {
+                            required[i] = true;
+                            moreRequired = true;
+                        }
+                    }
+                    // a single cursor is walked as it is
+                    if (moreRequired && cursorCount > 1) {
+                        candidates = intersect(cursors, cursorCount, required, words);
+                    }
+                }
+
+                ordinal = nextCandidate(cursors, cursorCount, firstEssential, candidates, ordinal + 1);
+            }
+
+            topHits.sort();
+            return topHits;
+        }
+
+        // the first product from the given ordinal on that is in an essential cursor and among the candidates
+        private static int nextCandidate(Cursor[] cursors, int cursorCount, int firstEssential, long[] candidates, int from) {
+            int ordinal = from;
+            while (true) {
+                if (candidates != null) {
+                    ordinal = nextSetBit(candidates, ordinal);
+                    if (ordinal == Cursor.EXHAUSTED) {
+                        return Cursor.EXHAUSTED;
+                    }
+                }
+
+                int candidate = Cursor.EXHAUSTED;
+                for (int i = firstEssential; i < cursorCount; i++) {
+                    cursors[i].advance(ordinal);
+                    candidate = Math.min(candidate, cursors[i].document());
+                }
+                if (candidates == null || candidate == ordinal || candidate == Cursor.EXHAUSTED) {
+                    return candidate;
+                }
+                ordinal = candidate;
+            }
+        }
+
+        private static long[] intersect(Cursor[] cursors, int cursorCount, boolean[] required, int words) {
+            long[] intersection = null;
+            for (int i = 0; i < cursorCount; i++) {
+                if (required[i]) {
+                    long[] bits = cursors[i].bits(words);
+                    if (intersection == null) {
+                        intersection = bits.clone();
+                    } else {
+                        for (int word = 0; word < words; word++) {
+                            intersection[word] &= bits[word];
+                        }
+                    }
+                }
+            }
+            return intersection;
+        }
+
+        private static int nextSetBit(long[] bits, int from) {
+            int word = from / Long.SIZE;
+            if (word >= bits.length) {
+                return Cursor.EXHAUSTED;
+            }
+
+            long remaining = bits[word] & -1L << from;
+            while (remaining == 0) {
+                if (++word == bits.length) {
+                    return Cursor.EXHAUSTED;
+                }
+                remaining = bits[word];
+            }
+            return word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+        }
+
+        // the products still to come rank after the ones in the heap on equal scores, as long as the ordinals follow
+        // the ids
+        private boolean canMakeIt(float bound, TopHits topHits) {
+            return bound > topHits.lowestScore() || (bound == topHits.lowestScore() && !idOrdered);
+        }
+
+        // documents matching more of the query terms rank first; the scores are added up in query order, so that the
+        // total does not depend on which cursors were essential
+        private static float score(float[] termScores, int matchedTerms) {
+            float total = 0;
+            for (float termScore : termScores) {
+                total += termScore;
+            }
+            return total * matchedTerms / termScores.length;
+        }
+
+        /**
+         * The highest score of a product with the given term scores, were it to match every term of the cursors up to
+         * the given one too. It is added up the same way as the score, so it is never below it.
+         */
+        private static float bound(float[] termScores, int[] ranks, float[] maxScores, int lastCursor, int matchedTerms) {
+            float total = 0;
+            for (int t = 0; t < termScores.length; t++) {
+                total += ranks[t] >= 0 && ranks[t] <= lastCursor ? maxScores[t] : termScores[t];
+            }
+            return total * (matchedTerms + lastCursor + 1) / termScores.length;
+        }
+
+        // the highest score of a product matching every term but the one of the given cursor
+        private static float boundWithout(int[] ranks, float[] maxScores, int cursor, int cursorCount) {
+            float total = 0;
+            for (int t = 0; t < ranks.length; t++) {
+                total += ranks[t] >= 0 && ranks[t] != cursor ? maxScores[t] : 0;
+            }
+            return total * (cursorCount - 1) / ranks.length;
+        }
+
+        private float idf(Postings termPostings) {
+            return (float) Math.log(1 + (double) ordinals.size() / termPostings.size);
+        }
+
+        private static void addTerms(Map<String, Float> weights, String text, float weight) {
+            for (String token : tokenize(text)) {
+                weights.merge(token, weight, Float::sum);
+            }
+        }
+
+    }
+
+    /**
+     * The products containing a term, by ascending ordinal, with the weight of the term in each of them.
+     */
+    private static final class Postings {
+
+        private int[] documents = new int[4];
+
+        private float[] weights = new float[4];
+
+        private int size;
+
+        // removals leave it as it is: it may then be above every weight, which still makes it an upper bound
+        private float maxWeight;
+
+        private void add(int ordinal, float weight) {
+            int position = -Arrays.binarySearch(documents, 0, size, ordinal) - 1;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+
+            System.arraycopy(documents, position, documents, position + 1, size - position);
+            System.arraycopy(weights, position, weights, position + 1, size - position);
+            documents[position] = ordinal;
+            weights[position] = weight;
+            size++;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        private void remove(int ordinal) {
+            int position = Arrays.binarySearch(documents, 0, size, ordinal);
+            if (position < 0) {
+                return;
+            }
+
+            System.arraycopy(documents, position + 1, documents, position, size - position - 1);
+            System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+            size--;
+        }
+
+        // gives the products their new ordinals, and the weights their exact maximum
+        private void renumber(int[] renumbered) {
+            long[] postings = new long[size];
+            for (int i = 0; i < size; i++) {
+                postings[i] = (long) renumbered[documents[i]] << Integer.SIZE | Float.floatToRawIntBits(weights[i]) & 0xFFFFFFFFL;
+            }
+            Arrays.sort(postings);
+
+            maxWeight = 0;
+            for (int i = 0; i < size; i++) {
+                documents[i] = (int) (postings[i] >>> Integer.SIZE);
+                weights[i] = Float.intBitsToFloat((int) postings[i]);
+                maxWeight = Math.max(maxWeight, weights[i]);
+            }
+        }
+
+    }
+
+    /**
+     * Walks the products matching a query term in ordinal order; their scores are the weights times the factor.
+     */
+    private static final class Cursor {
+
+        private static final int EXHAUSTED = Integer.MAX_VALUE;
+
+        private static final int LINEAR_STEPS = 8;
+
+        // position of the term in the query
+        private final int queryTerm;
+
+        private final int[] documents;
+
+        private final float[] weights;
+
+        private final int size;
+
+        private final float factor;
+
+        private final float maxScore;
+
+        private int position;
+
+        // the products as a bit set by ordinal, built on first use
+        private long[] bits;
+
+        private Cursor(int queryTerm, int[] documents, float[] weights, int size, float factor, float maxScore) {
+            this.queryTerm = queryTerm;
+            this.documents = documents;
+            this.weights = weights;
+            this.size = size;
+            this.factor = factor;
+            this.maxScore = maxScore;
+        }
+
+        private int document() {
+            return position < size ? documents[position] : EXHAUSTED;
+        }
+
+        private float score() {
+            return weights[position] * factor;
+        }
+
+        private long[] bits(int words) {
+            if (bits == null) {
+                bits = new long[words];
+                for (int i = 0; i < size; i++) {
+                    bits[documents[i] / Long.SIZE] |= 1L << documents[i];
+                }
+            }
+            return bits;
+        }
+
+        private void next() {
+            position++;
+        }
+
+        // moves to the first product at or after the given ordinal: it is usually a few products away, so they are
+        // stepped over first, and then galloped over
+        private void advance(int ordinal) {
+            int end = Math.min(position + LINEAR_STEPS, size);
+            while (position < end && documents[position] < ordinal) {
+                position++;
+            }
+            if (position == end && position < size && documents[position] < ordinal) {
+                int low = position + 1;
+                int step = 1;
+                while (low + step < size && documents[low + step] < ordinal) {
+                    low += step + 1;
+                    step *= 2;
+                }
+                int found = Arrays.binarySearch(documents, low, Math.min(low + step + 1, size), ordinal);
+                position = found >= 0 ? found : -found - 1;
+            }
+        }
+
+    }
+
+    /**
+     * The best hits seen so far, in a heap of primitive arrays with the worst hit on top. Higher scores rank first,
+     * then lower product ids, so that pages are stable.
+     */
+    private static final class TopHits {
+
+        private final int[] documents;
+
+        private final float[] scores;
+
+        private final long[] ids;
+
+        private int size;
+
+        private TopHits(int capacity, long[] ids) {
+            this.documents = new int[capacity];
+            this.scores = new float[capacity];
+            this.ids = ids;
+        }
+
+        private boolean isFull() {
+            return size == documents.length;
+        }
+
+        private float lowestScore() {
+            return scores[0];
+        }
+
+        // whether a product with the given score would make it into the heap
+        private boolean accepts(float score, int ordinal) {
+            return !isFull() || ranksBefore(score, ordinal, scores[0], documents[0]);
+        }
+
+        private boolean offer(int ordinal, float score) {
+            if (!isFull()) {
+                documents[size] = ordinal;
+                scores[size] = score;
+                siftUp(size++);
+                return true;
+            }
+            if (ranksBefore(score, ordinal, scores[0], documents[0])) {
+                documents[0] = ordinal;
+                scores[0] = score;
+                siftDown(0, size);
+                return true;
+            }
+            return false;
+        }
+
+        // best hit first; the heap is gone afterwards
+        private void sort() {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+        }
+
+        private boolean ranksBefore(float score, int ordinal, float otherScore, int otherOrdinal) {
+            return score > otherScore || (score == otherScore && ids[ordinal] < ids[otherOrdinal]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!ranksBefore(scores[parent], documents[parent], scores[i], documents[i])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (true) {
+                int worst = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < end; child++) {
+                    if (ranksBefore(scores[worst], documents[worst], scores[child], documents[child])) {
+                        worst = child;
+                    }
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int document = documents[i];
+            documents[i] = documents[j];
+            documents[j] = document;
+
+            float score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+    }
+
+}
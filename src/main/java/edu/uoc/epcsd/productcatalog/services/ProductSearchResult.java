@@ -0,0 +1,17 @@
+package edu.uoc.epcsd.productcatalog.services;
+
+import lombok.*;
+
+import java.util.List;
+
+@ToString
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class ProductSearchResult {
+
+    private final long total;
+
+    private final List<ProductDetails> products;
+
+}
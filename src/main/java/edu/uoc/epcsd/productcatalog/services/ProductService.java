@@ -1,49 +1,158 @@
 package edu.uoc.epcsd.productcatalog.services;
 
-import edu.uoc.epcsd.productcatalog.entities.Category;
 import edu.uoc.epcsd.productcatalog.entities.Product;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.kafka.CatalogChangePublisher;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryRepository;
 import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductInCategory;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 public class ProductService {
 
+    public static final String PRODUCT_DETAILS_CACHE = "productDetails";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private CategoryRepository categoryRepository;
+
     @Autowired
     private CategoryService categoryService;
 
-    public List<Product> findAll(String name, Long categoryId) {
-        return productRepository.findByNameOrCategoryId(name, categoryId);
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private CatalogChangePublisher catalogChangePublisher;
+
+    @Transactional(readOnly = true)
+    public List<ProductDetails> findAll(String name, Long categoryId) {
+        return toDetails(productRepository.findSummaries(name, categoryId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDetails> findAll(String name, Long categoryId, boolean includeSubcategories) {
+        if (!includeSubcategories || categoryId == null) {
+            return findAll(name, categoryId);
+        }
+
+        List<Long> categoryIds = categoryService.getCategoryTree().getSubtreeIds(categoryId);
+        if (categoryIds.isEmpty()) {
+            return List.of();
+        }
+
+        return toDetails(productRepository.findSummariesInCategories(name, categoryIds));
     }
 
     public Optional<Product> findById(Long productId) {
         return productRepository.findById(productId);
     }
 
-    public Product createProduct(Long categoryId, String name, String description, Double dailyPrice, String brand, String model) throws ProductException {
-        Product product = Product.builder().name(name).description(description).dailyPrice(dailyPrice).brand(brand).model(model).build();
+    /**
+     * The category of every one of the given products that exists, by product id, in a single query.
+     */
+    public Map<Long, Long> findCategoryIds(Collection<Long> productIds) {
+        Map<Long, Long> categoryIds = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (ProductInCategory product : productRepository.findCategoryIds(productIds)) {
+                categoryIds.put(product.getProductId(), product.getCategoryId());
+            }
+        }
+        return categoryIds;
+    }
+
+    // missing products are not cached, so a product is visible as soon as it is created
+    @Cacheable(cacheNames = PRODUCT_DETAILS_CACHE, unless = "#result == null")
+    public Optional<ProductDetails> findDetailsById(Long productId) {
+        return productRepository.findSummaryById(productId)
+                .map(product -> ProductDetails.fromSummary(product, categoryService.getCategoryTree()));
+    }
 
-        if (!productRepository.findByNameOrCategoryId(name, categoryId).isEmpty()) {
-            throw new ProductException("Product already exists");
+    /**
+     * A single insert: duplicate names within the category and unknown categories are reported by the database
+     * constraints.
+     */
+    @Transactional(rollbackFor = ProductException.class)
+    public Product createProduct(Long categoryId, String name, String description, Double dailyPrice, String brand, String model) throws ProductException {
+        if (categoryId == null) {
+            throw new ProductException("Category is required");
         }
 
-        if (categoryId != null) {
-            Optional<Category> category = categoryService.findById(categoryId);
+        Product product = Product.builder()
+                .name(name)
+                .description(description)
+                .dailyPrice(dailyPrice)
+                .brand(brand)
+                .model(model)
+                .category(categoryRepository.getById(categoryId))
+                .build();
 
-            category.ifPresent(product::setCategory);
+        Product savedProduct;
+        try {
+            savedProduct = productRepository.saveAndFlush(product);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isUniqueViolation(e)) {
+                throw new ProductException("Product already exists");
+            } else if (ConstraintViolations.isForeignKeyViolation(e)) {
+                throw new ProductException("Could not find the category with Id: " + categoryId);
+            }
+            throw e;
         }
 
-        return productRepository.save(product);
+        productSearchIndex.index(ProductDetails.fromDomain(savedProduct, categoryService.getCategoryTree()));
+        catalogChangePublisher.productChanged(savedProduct.getId(), savedProduct.getVersion());
+
+        return savedProduct;
+    }
+
+    public ProductSearchResult search(String query, int page, int size) {
+        return productSearchIndex.search(query, page, size);
     }
 
+    @CacheEvict(cacheNames = PRODUCT_DETAILS_CACHE, key = "#productId")
     public void deleteProduct(Long productId) {
         productRepository.deleteById(productId);
+        availabilityService.productDeleted(productId);
+        productSearchIndex.remove(productId);
+        catalogChangePublisher.productDeleted(productId);
+    }
+
+    /**
+     * Brings what this instance keeps in memory about a product (cached details, search index entry, availability
+     * counters) up to date after another instance changed it.
+     */
+    @CacheEvict(cacheNames = PRODUCT_DETAILS_CACHE, key = "#productId")
+    public void refreshProduct(Long productId) {
+        Optional<ProductSummary> product = productRepository.findSummaryById(productId);
+        if (product.isPresent()) {
+            productSearchIndex.index(ProductDetails.fromSummary(product.get(), categoryService.getCategoryTree()));
+        } else {
+            availabilityService.productDeleted(productId);
+            productSearchIndex.remove(productId);
+        }
+    }
+
+    private List<ProductDetails> toDetails(List<ProductSummary> products) {
+        CategoryTree categoryTree = categoryService.getCategoryTree();
+
+        List<ProductDetails> details = new ArrayList<>(products.size());
+        for (ProductSummary product : products) {
+            details.add(ProductDetails.fromSummary(product, categoryTree));
+        }
+        return details;
     }
 }
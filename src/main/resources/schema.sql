@@ -1,16 +1,25 @@
-INSERT INTO category (name, description, parent_id)
-VALUES ('Cámaras', 'Cámaras', null)
-     , ('Cámaras de Fotos', 'Cámaras de Fotos', 1)
-     , ('Cámaras de Video', 'Cámaras de Video', 1)
-     , ('Iluminación', 'Todo tipo de accesorios de iluminación', null)
-     , ('Focos', 'Focos direccionales, omnidireccionales, etc.', 4)
-     , ('Difusores', 'Difusores para focos', 4)
+INSERT INTO category (id, version, name, description, parent_id)
+VALUES (nextval('catalog_element_seq'), 0, 'Cámaras', 'Cámaras', null)
+     , (nextval('catalog_element_seq'), 0, 'Iluminación', 'Todo tipo de accesorios de iluminación', null)
 ;
 
-INSERT INTO product (name, description, daily_price, brand, model, category_id)
-VALUES ('Canon 500D', 'Cámara de fotos Canon 500D', 100, 'Canon', '500D', 2)
-     , ('Canon EOS R8', 'Cámara de fotos Canon EOS R8', 200, 'Canon', 'EOS R8', 2)
-     , ('Canon EOS R5 C', 'Cámara de video Canon EOS R5 C', 250, 'Canon', 'EOS R5 C', 3)
-     , ('Foco Phillips 120L', 'Foco LED Phillips de luz blanca 120W. Sin difusor', 80, 'Phillips', '120L', 5)
-     , ('Foco Phillips 220L', 'Foco LED Phillips de luz blanca 220W. Sin difusor', 120, 'Phillips', '220L', 5)
+INSERT INTO category (id, version, name, description, parent_id)
+VALUES (nextval('catalog_element_seq'), 0, 'Cámaras de Fotos', 'Cámaras de Fotos', (SELECT id FROM category WHERE name = 'Cámaras'))
+     , (nextval('catalog_element_seq'), 0, 'Cámaras de Video', 'Cámaras de Video', (SELECT id FROM category WHERE name = 'Cámaras'))
+     , (nextval('catalog_element_seq'), 0, 'Focos', 'Focos direccionales, omnidireccionales, etc.', (SELECT id FROM category WHERE name = 'Iluminación'))
+     , (nextval('catalog_element_seq'), 0, 'Difusores', 'Difusores para focos', (SELECT id FROM category WHERE name = 'Iluminación'))
+;
+
+INSERT INTO product (id, version, name, description, daily_price, brand, model, category_id)
+VALUES (nextval('catalog_element_seq'), 0, 'Canon 500D', 'Cámara de fotos Canon 500D', 100, 'Canon', '500D', (SELECT id FROM category WHERE name = 'Cámaras de Fotos'))
+     , (nextval('catalog_element_seq'), 0, 'Canon EOS R8', 'Cámara de fotos Canon EOS R8', 200, 'Canon', 'EOS R8', (SELECT id FROM category WHERE name = 'Cámaras de Fotos'))
+     , (nextval('catalog_element_seq'), 0, 'Canon EOS R5 C', 'Cámara de video Canon EOS R5 C', 250, 'Canon', 'EOS R5 C', (SELECT id FROM category WHERE name = 'Cámaras de Video'))
+     , (nextval('catalog_element_seq'), 0, 'Foco Phillips 120L', 'Foco LED Phillips de luz blanca 120W. Sin difusor', 80, 'Phillips', '120L', (SELECT id FROM category WHERE name = 'Focos'))
+     , (nextval('catalog_element_seq'), 0, 'Foco Phillips 220L', 'Foco LED Phillips de luz blanca 220W. Sin difusor', 120, 'Phillips', '220L', (SELECT id FROM category WHERE name = 'Focos'))
+;
+
+INSERT INTO category_item_count (category_id, status, total)
+SELECT id, 'OPERATIONAL', 0 FROM category
+UNION ALL
+SELECT id, 'NON_OPERATIONAL', 0 FROM category
 ;
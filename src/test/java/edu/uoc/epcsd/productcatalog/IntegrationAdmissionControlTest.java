@@ -0,0 +1,145 @@
+package edu.uoc.epcsd.productcatalog;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.uoc.epcsd.productcatalog.config.AdmissionController;
+import edu.uoc.epcsd.productcatalog.config.Bulkhead;
+import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateItemRequest;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Small bulkheads, re-evaluated on every request, so that the tests can fill them and saturate the connection pool
+ * by hand.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "productcatalog.admission.write.max-concurrent=2",
+        "productcatalog.admission.write.min-concurrent=1",
+        "productcatalog.admission.write.max-wait=PT0S",
+        "productcatalog.admission.adjust-interval=PT0S",
+        "productcatalog.admission.pool-saturation=0.8"})
+public class IntegrationAdmissionControlTest extends IntegrationBaseTest {
+
+    @Autowired
+    AdmissionController admissionController;
+
+    @Autowired
+    HikariDataSource primaryDataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Product product;
+
+    int serialNumbers;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        Category category = getCategoryService().createCategory(null, "Test Category", "Test Description");
+        product = getProductService().createProduct(category.getId(), "Test Product", "Test Description", 10.0, "Brand", "Model");
+        // lets the write limit grow back after the previous test
+        for (int i = 0; i < 2; i++) {
+            getMockMvc().perform(get("/products/" + product.getId())).andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    public void testWritesAreRejectedWhenTheirBulkheadIsFull() throws Exception {
+        Bulkhead writes = admissionController.getBulkhead(AdmissionController.Group.WRITE);
+        double rejections = rejections("bulkhead_full");
+
+        assertTrue(writes.tryAcquire(0) >= 0);
+        assertTrue(writes.tryAcquire(0) >= 0);
+        try {
+            createItem().andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+            // the reads have a bulkhead of their own
+            getMockMvc().perform(get("/products/" + product.getId())).andExpect(status().isOk());
+        } finally {
+            writes.release();
+            writes.release();
+        }
+
+        assertEquals(rejections + 1, rejections("bulkhead_full"));
+        createItem().andExpect(status().isCreated());
+    }
+
+    @Test
+    public void testWritesAreShedWhileThePoolIsSaturated() throws Exception {
+        double rejections = rejections("overloaded");
+
+        List<Connection> connections = new ArrayList<>();
+        try {
+            while (connections.size() < 0.8 * primaryDataSource.getMaximumPoolSize()) {
+                connections.add(primaryDataSource.getConnection());
+            }
+
+            getMockMvc().perform(get("/products/" + product.getId())).andExpect(status().isOk());
+            assertTrue(admissionController.isOverloaded());
+            assertEquals(1, admissionController.getBulkhead(AdmissionController.Group.WRITE).getLimit());
+
+            createItem().andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+
+        assertEquals(rejections + 1, rejections("overloaded"));
+        createItem().andExpect(status().isCreated());
+        assertFalse(admissionController.isOverloaded());
+    }
+
+    @Test
+    public void testStreamingResponsesHoldTheirSlotUntilCompleted() throws Exception {
+        Bulkhead reads = admissionController.getBulkhead(AdmissionController.Group.READ);
+
+        MvcResult result = getMockMvc().perform(get("/catalog/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, reads.getInFlight());
+
+        getMockMvc().perform(asyncDispatch(result)).andExpect(status().isOk());
+        assertEquals(0, reads.getInFlight());
+    }
+
+    private ResultActions createItem() throws Exception {
+        CreateItemRequest request = new CreateItemRequest(product.getId(), "SN-" + ++serialNumbers);
+        return getMockMvc().perform(post("/items")
+                .content(getObjectMapper().writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON));
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.counter(AdmissionController.REJECTIONS_COUNTER, "group", "write", "reason", reason).count();
+    }
+
+}
@@ -3,25 +3,41 @@ package edu.uoc.epcsd.productcatalog;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.uoc.epcsd.productcatalog.kafka.KafkaProducerConfig;
 import edu.uoc.epcsd.productcatalog.kafka.KafkaTopicConfig;
+import edu.uoc.epcsd.productcatalog.kafka.OutboxRelay;
 import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.kafka.PublishCircuitBreaker;
+import edu.uoc.epcsd.productcatalog.repositories.CategoryItemCountRepository;
 import edu.uoc.epcsd.productcatalog.repositories.CategoryRepository;
 import edu.uoc.epcsd.productcatalog.repositories.ItemRepository;
+import edu.uoc.epcsd.productcatalog.repositories.ItemStatusChangeRepository;
+import edu.uoc.epcsd.productcatalog.repositories.OutboxEventRepository;
 import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.services.AvailabilityService;
 import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.ItemHistoryService;
 import edu.uoc.epcsd.productcatalog.services.ItemService;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchIndex;
 import edu.uoc.epcsd.productcatalog.services.ProductService;
 import lombok.Getter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.persistence.EntityManagerFactory;
+
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 @Getter
 public class IntegrationBaseTest {
 
@@ -37,6 +53,9 @@ public class IntegrationBaseTest {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryItemCountRepository categoryItemCountRepository;
+
     @MockBean
     private KafkaTemplate<String, ProductMessage> productKafkaTemplate;
 
@@ -49,19 +68,70 @@ public class IntegrationBaseTest {
     @Autowired
     private ItemRepository itemRepository;
 
+    @Autowired
+    private ItemStatusChangeRepository itemStatusChangeRepository;
+
     @Autowired
     private ItemService itemService;
 
+    @Autowired
+    private ItemHistoryService itemHistoryService;
+
     @Autowired
     private ProductService productService;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private PublishCircuitBreaker publishCircuitBreaker;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Hibernate statistics, to count the statements a request runs. Call {@code clear()} right before the request.
+     */
+    public Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @BeforeEach
+    public void stubKafka() {
+        Mockito.when(productKafkaTemplate.send(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(new AsyncResult<>(null));
+    }
+
+    /**
+     * The second-level cache regions are shared by every context in the JVM, and a context that recreates the schema
+     * reuses the ids whose deletion another one left locked in them.
+     */
+    @BeforeEach
+    public void clearSecondLevelCache() {
+        entityManagerFactory.getCache().evictAll();
+    }
+
     @AfterEach
     public void tearDown() {
+        outboxEventRepository.deleteAll();
+        itemStatusChangeRepository.deleteAll();
         itemRepository.deleteAll();
         productRepository.deleteAll();
         categoryRepository.deleteAll();
+        categoryItemCountRepository.deleteAll();
+        categoryService.invalidateCategoryTree();
+        productSearchIndex.rebuild();
+        publishCircuitBreaker.reset();
     }
 }
@@ -0,0 +1,186 @@
+package edu.uoc.epcsd.productcatalog;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.services.CatalogImportProgress;
+import edu.uoc.epcsd.productcatalog.services.CatalogImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IntegrationCatalogControllerTest extends IntegrationBaseTest {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @Test
+    public void testImportNdjson() throws Exception {
+        String body = String.join("\n",
+                "{\"type\":\"category\",\"name\":\"Cámaras\",\"description\":\"Cámaras\"}",
+                "{\"type\":\"category\",\"name\":\"Cámaras de Fotos\",\"description\":\"Cámaras de Fotos\",\"parent\":\"Cámaras\"}",
+                "{\"type\":\"product\",\"name\":\"Canon 500D\",\"description\":\"Cámara de fotos\",\"category\":\"Cámaras de Fotos\",\"dailyPrice\":100,\"brand\":\"Canon\",\"model\":\"500D\"}",
+                "{\"type\":\"product\",\"name\":\"Canon 500D\",\"description\":\"Repeated\",\"category\":\"Cámaras de Fotos\",\"dailyPrice\":100,\"brand\":\"Canon\",\"model\":\"500D\"}",
+                "{\"type\":\"product\",\"name\":\"Orphan\",\"description\":\"No category\",\"category\":\"Unknown\",\"dailyPrice\":1,\"brand\":\"b\",\"model\":\"m\"}",
+                "not json",
+                "{\"type\":\"product\",\"name\":\"Canon EOS R8\",\"description\":\"Cámara de fotos\",\"category\":\"Cámaras de Fotos\",\"dailyPrice\":200,\"brand\":\"Canon\",\"model\":\"EOS R8\"}");
+
+        String report = getMockMvc().perform(post("/catalog/import")
+                        .param("batchSize", "2")
+                        .content(body)
+                        .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("{\"event\":\"summary\",\"processed\":7,\"created\":4,\"failed\":3}")))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(report.contains("{\"event\":\"error\",\"line\":4,\"message\":\"Product already exists\"}"));
+        assertTrue(report.contains("{\"event\":\"error\",\"line\":5,\"message\":\"Category not found\"}"));
+
+        List<Category> categories = getCategoryRepository().findAll();
+        assertEquals(2, categories.size());
+        Category subcategory = categories.stream().filter(c -> c.getName().equals("Cámaras de Fotos")).findFirst().orElseThrow();
+        assertEquals("Cámaras", subcategory.getParent().getName());
+
+        List<Product> products = getProductRepository().findAll();
+        assertEquals(2, products.size());
+        assertTrue(products.stream().allMatch(p -> p.getCategory().getId().equals(subcategory.getId())));
+
+        // the category tree picks up the imported categories
+        assertEquals(2, getCategoryService().getCategoryTree().size());
+    }
+
+    @Test
+    public void testImportCsv() throws Exception {
+        getCategoryService().createCategory(null, "Iluminación", "Iluminación");
+
+        String body = String.join("\n",
+                "type,name,description,parent,category,dailyPrice,brand,model",
+                "category,Focos,\"Focos direccionales, omnidireccionales, etc.\",Iluminación,,,,",
+                "product,Foco Phillips 120L,\"Foco LED \"\"120W\"\"\",,Focos,80,Phillips,120L",
+                "category,Iluminación,Repeated,,,,,");
+
+        getMockMvc().perform(post("/catalog/import")
+                        .content(body)
+                        .contentType("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("{\"event\":\"error\",\"line\":4,\"message\":\"Category already exists\"}")))
+                .andExpect(content().string(containsString("{\"event\":\"summary\",\"processed\":3,\"created\":2,\"failed\":1}")));
+
+        Product product = getProductRepository().findAll().get(0);
+        assertEquals("Foco LED \"120W\"", product.getDescription());
+        Category category = getCategoryRepository().findById(product.getCategory().getId()).orElseThrow();
+        assertEquals("Focos", category.getName());
+        assertEquals("Focos direccionales, omnidireccionales, etc.", category.getDescription());
+    }
+
+    @Test
+    public void testImportBatchRejectedByTheDatabase() throws Exception {
+        String body = String.join("\n",
+                "{\"type\":\"category\",\"name\":\"Iluminación\",\"description\":\"Iluminación\"}",
+                "{\"type\":\"category\",\"name\":\"Focos\",\"description\":\"Focos\",\"parent\":\"Iluminación\"}",
+                "{\"type\":\"category\",\"name\":\"Difusores\",\"description\":\"Difusores\",\"parent\":\"Iluminación\"}");
+
+        List<Long> failedLines = new ArrayList<>();
+        CatalogImportProgress progress = catalogImportService.importCatalog(new StringReader(body), CatalogImportService.Format.NDJSON, 1,
+                new CatalogImportService.Listener() {
+
+                    @Override
+                    public void rowFailed(long line, String message) {
+                        failedLines.add(line);
+                    }
+
+                    @Override
+                    public void batchCommitted(CatalogImportProgress progress) {
+                        // created by another request while the import runs, so the second batch breaks the unique constraint
+                        if (progress.getProcessed() == 1) {
+                            getCategoryRepository().save(Category.builder().name("Focos").description("Focos").build());
+                        }
+                    }
+
+                });
+
+        // only the rows of the rejected batch fail, and the import goes on
+        assertEquals(List.of(2L), failedLines);
+        assertEquals(3, progress.getProcessed());
+        assertEquals(2, progress.getCreated());
+        assertEquals(3, getCategoryRepository().count());
+    }
+
+    @Test
+    public void testImportRejectsOversizedBatches() throws Exception {
+        getMockMvc().perform(post("/catalog/import")
+                        .param("batchSize", "100000")
+                        .content("{}")
+                        .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        Category category = getCategoryService().createCategory(null, "Cámaras", "Cámaras");
+        Category subcategory = getCategoryService().createCategory(category.getId(), "Cámaras de Fotos", "Cámaras de Fotos");
+        Product product = getProductService().createProduct(subcategory.getId(), "Canon 500D", "Cámara de fotos", 100.0, "Canon", "500D");
+        getItemService().createItem(product.getId(), "122122-1222");
+
+        MvcResult result = getMockMvc().perform(get("/catalog/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = getMockMvc().perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("{\"type\":\"category\",\"id\":" + category.getId() + ",\"name\":\"Cámaras\",\"description\":\"Cámaras\",\"parentId\":null}", lines[0]);
+        assertEquals(category.getId(), getObjectMapper().readTree(lines[1]).get("parentId").asLong());
+        assertEquals("{\"type\":\"product\",\"id\":" + product.getId() + ",\"name\":\"Canon 500D\",\"description\":\"Cámara de fotos\",\"dailyPrice\":100.0,"
+                + "\"brand\":\"Canon\",\"model\":\"500D\",\"categoryId\":" + subcategory.getId() + "}", lines[2]);
+        assertEquals("{\"type\":\"item\",\"serialNumber\":\"122122-1222\",\"status\":\"OPERATIONAL\",\"productId\":" + product.getId() + "}", lines[3]);
+    }
+
+    @Test
+    public void testExportGzip() throws Exception {
+        getCategoryService().createCategory(null, "Cámaras", "Cámaras");
+
+        MvcResult result = getMockMvc().perform(get("/catalog/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = getMockMvc().perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String export = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(export.startsWith("{\"type\":\"category\""));
+            assertTrue(export.endsWith("}\n"));
+        }
+    }
+
+}
@@ -2,17 +2,33 @@ package edu.uoc.epcsd.productcatalog;
 
 import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateCategoryRequest;
 import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.services.NewItem;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -20,6 +36,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class IntegrationCategoryControllerTest extends IntegrationBaseTest {
 
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     Category category;
 
     @BeforeEach
@@ -41,6 +60,25 @@ public class IntegrationCategoryControllerTest extends IntegrationBaseTest {
                 .andExpect(jsonPath("$[0].name", is("Test Category")));
     }
 
+    @Test
+    public void testGetAllCategoriesNotModified() throws Exception {
+        String eTag = getMockMvc().perform(get("/categories/"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        getMockMvc().perform(get("/categories/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        getCategoryService().createCategory(category.getId(), "Subcategory", "Test Description");
+
+        getMockMvc().perform(get("/categories/").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
     @Test
     public void testGetAllCategoriesByName() throws Exception {
         getCategoryService().createCategory(null, "name-match", category.getDescription());
@@ -148,4 +186,131 @@ public class IntegrationCategoryControllerTest extends IntegrationBaseTest {
                 .andExpect(jsonPath("$[0].parent.id", is(category2.getId().intValue())));
     }
 
+    @Test
+    public void testFindByIdUsesSecondLevelCache() {
+        // the cache is filled on insert, so not even the first lookup reaches the database
+        getStatistics().clear();
+        assertTrue(getCategoryService().findById(category.getId()).isPresent());
+        assertTrue(getCategoryService().findById(category.getId()).isPresent());
+
+        assertEquals(0, getStatistics().getPrepareStatementCount());
+        assertEquals(2, getStatistics().getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void testGetSubcategoriesIsCachedUntilCategoryIsCreated() throws Exception {
+        getCategoryService().createCategory(category.getId(), "Subcategory", "Test Description 2");
+
+        getMockMvc().perform(get("/categories/" + category.getId() + "/subcategories/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        getStatistics().clear();
+        getMockMvc().perform(get("/categories/" + category.getId() + "/subcategories/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        assertEquals(0, getStatistics().getPrepareStatementCount());
+        assertEquals(1, getStatistics().getQueryCacheHitCount());
+
+        // the insert invalidates the cached results
+        getCategoryService().createCategory(category.getId(), "Subcategory 2", "Test Description 3");
+
+        getMockMvc().perform(get("/categories/" + category.getId() + "/subcategories/"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testGetCategoryTree() throws Exception {
+        Category subcategory = getCategoryService().createCategory(category.getId(), "Subcategory", "Test Description 2");
+        getCategoryService().createCategory(subcategory.getId(), "Subsubcategory", "Test Description 3");
+
+        getMockMvc().perform(get("/categories/tree")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Test Category")))
+                .andExpect(jsonPath("$[0].children", hasSize(1)))
+                .andExpect(jsonPath("$[0].children[0].name", is("Subcategory")))
+                .andExpect(jsonPath("$[0].children[0].children[0].name", is("Subsubcategory")));
+    }
+
+    @Test
+    public void testCategoryTreeIgnoresRolledBackCategories() {
+        // loaded before the category is created, so that it is only added to it by the creation
+        getCategoryService().getCategoryTree();
+
+        Long rolledBackId = new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                Category rolledBack = getCategoryService().createCategory(category.getId(), "Phantom Category", "Test Description");
+                status.setRollbackOnly();
+                return rolledBack.getId();
+            } catch (ProductException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(getCategoryService().getCategoryTree().get(rolledBackId).isEmpty());
+        assertTrue(getCategoryService().getCategoryTree().getChildren(category.getId()).isEmpty());
+    }
+
+    @Test
+    public void testGetCategoryStats() throws Exception {
+        Category subcategory = getCategoryService().createCategory(category.getId(), "Subcategory", "Test Description 2");
+        Category other = getCategoryService().createCategory(null, "Other Category", "Test Description 3");
+        Product camera = getProductService().createProduct(category.getId(), "Camera", "Camera", 10.0, "Brand", "Model");
+        Product lens = getProductService().createProduct(subcategory.getId(), "Lens", "Lens", 30.0, "Brand", "Model");
+        getProductService().createProduct(other.getId(), "Tripod", "Tripod", 100.0, "Brand", "Model");
+        getItemService().createItem(camera.getId(), "SN-1");
+        getItemService().createItem(lens.getId(), "SN-2");
+        getItemService().createItem(lens.getId(), "SN-3");
+        getItemService().setOperational("SN-3", false);
+
+        // the category with its subcategory
+        getMockMvc().perform(get("/categories/" + category.getId() + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Test Category")))
+                .andExpect(jsonPath("$.products", is(2)))
+                .andExpect(jsonPath("$.items.OPERATIONAL", is(2)))
+                .andExpect(jsonPath("$.items.NON_OPERATIONAL", is(1)))
+                .andExpect(jsonPath("$.minDailyPrice", is(10.0)))
+                .andExpect(jsonPath("$.maxDailyPrice", is(30.0)))
+                .andExpect(jsonPath("$.avgDailyPrice", is(20.0)));
+
+        getMockMvc().perform(get("/categories/" + subcategory.getId() + "/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.parentId", is(category.getId().intValue())))
+                .andExpect(jsonPath("$.products", is(1)))
+                .andExpect(jsonPath("$.items.OPERATIONAL", is(1)))
+                .andExpect(jsonPath("$.items.NON_OPERATIONAL", is(1)));
+
+        getMockMvc().perform(get("/categories/" + (other.getId() + 1000) + "/stats"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetAllCategoryStats() throws Exception {
+        Category subcategory = getCategoryService().createCategory(category.getId(), "Subcategory", "Test Description 2");
+        Category empty = getCategoryService().createCategory(null, "Empty Category", "Test Description 3");
+        Product lens = getProductService().createProduct(subcategory.getId(), "Lens", "Lens", 30.0, "Brand", "Model");
+        getItemService().createItem(lens.getId(), "SN-1");
+        getItemService().createItems(List.of(new NewItem(lens.getId(), "SN-2"), new NewItem(lens.getId(), "SN-3")));
+        getItemService().setOperational("SN-3", false);
+        // a duplicate is not counted
+        assertThrows(ProductException.class, () -> getItemService().createItem(lens.getId(), "SN-1"));
+
+        getStatistics().clear();
+        getMockMvc().perform(get("/categories/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + category.getId() + ")].products", contains(1)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + category.getId() + ")].items.OPERATIONAL", contains(2)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + category.getId() + ")].items.NON_OPERATIONAL", contains(1)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + subcategory.getId() + ")].maxDailyPrice", contains(30.0)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + empty.getId() + ")].products", contains(0)))
+                .andExpect(jsonPath("$[?(@.categoryId == " + empty.getId() + ")].avgDailyPrice", contains(nullValue())));
+        // one query for the products of every category and one for their item counts, none per category, product or item
+        assertEquals(2, getStatistics().getPrepareStatementCount());
+    }
+
 }
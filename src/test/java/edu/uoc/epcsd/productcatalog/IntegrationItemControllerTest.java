@@ -3,35 +3,75 @@ package edu.uoc.epcsd.productcatalog;
 import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateItemRequest;
 import edu.uoc.epcsd.productcatalog.entities.Category;
 import edu.uoc.epcsd.productcatalog.entities.Item;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatusChange;
+import edu.uoc.epcsd.productcatalog.entities.OutboxEvent;
 import edu.uoc.epcsd.productcatalog.entities.Product;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.kafka.PublishCircuitBreaker;
+import edu.uoc.epcsd.productcatalog.kafka.PublishCircuitBreakerConfig;
+import edu.uoc.epcsd.productcatalog.services.NewItem;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 public class IntegrationItemControllerTest extends IntegrationBaseTest{
 
+    @Autowired
+    @Qualifier(PublishCircuitBreakerConfig.CATALOG_CHANGES_CIRCUIT_BREAKER)
+    private PublishCircuitBreaker catalogChangeCircuitBreaker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+
     private Item item;
 
     @BeforeEach
     public void setup() throws ProductException {
-        Category category = getCategoryService().createCategory(null, "Test Category", "Test Description");
+        this.category = getCategoryService().createCategory(null, "Test Category", "Test Description");
         Product product = getProductService()
                 .createProduct(
-                        category.getId(),
+                        this.category.getId(),
                         "Test Product",
                         "Test Description",
                         1.0, "brand",
@@ -39,7 +79,8 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
 
         this.item = getItemService().createItem(product.getId(), "122122-1222");
 
-        Mockito.reset(getProductKafkaTemplate());
+        getOutboxRelay().relay();
+        Mockito.clearInvocations(getProductKafkaTemplate());
     }
 
     @Test
@@ -51,6 +92,77 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 .andExpect(jsonPath("$[0].product.id", is(this.item.getProduct().getId().intValue())));
     }
 
+    @Test
+    public void testGetAllItemsInOneStatement() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Product product = getProductService().createProduct(this.category.getId(),
+                    "Test Product " + i, "Test Description", 1.0, "brand", "model");
+            getItemService().createItem(product.getId(), "122122-130" + i);
+        }
+
+        getStatistics().clear();
+        getMockMvc().perform(get("/items"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[1].product.name", is("Test Product 0")));
+
+        // the product of every item comes from the same statement
+        assertEquals(1, getStatistics().getPrepareStatementCount());
+    }
+
+    @Test
+    public void testGetItemsPage() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1223");
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1224");
+
+        getMockMvc().perform(get("/items").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].serialNumber", is("122122-1222")))
+                .andExpect(jsonPath("$[1].serialNumber", is("122122-1223")))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("after=122122-1223")));
+
+        getMockMvc().perform(get("/items").param("limit", "2").param("after", "122122-1223"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].serialNumber", is("122122-1224")));
+    }
+
+    @Test
+    public void testGetItemsByStatus() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1223");
+        getItemService().setOperational("122122-1223", false);
+
+        getMockMvc().perform(get("/items").param("status", "NON_OPERATIONAL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].serialNumber", is("122122-1223")));
+    }
+
+    @Test
+    public void testGetItemsWithInvalidLimit() throws Exception {
+        getMockMvc().perform(get("/items").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testStreamItems() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1223");
+
+        MvcResult result = getMockMvc().perform(get("/items/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = getMockMvc().perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("122122-1222", getObjectMapper().readValue(lines[0], Item.class).getSerialNumber());
+        assertEquals("122122-1223", getObjectMapper().readValue(lines[1], Item.class).getSerialNumber());
+    }
+
     @Test
     public void testGetItemBySerialNumber() throws Exception {
         Item item = getItemService().createItem(this.item.getProduct().getId(), "122122-1223");
@@ -60,6 +172,38 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 .andExpect(jsonPath("$.serialNumber", is("122122-1223")));
     }
 
+    @Test
+    public void testGetItemNotModified() throws Exception {
+        getMockMvc().perform(get("/items/" + item.getSerialNumber()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        getStatistics().clear();
+        getMockMvc().perform(get("/items/" + item.getSerialNumber()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(""));
+        // only the version was read
+        assertEquals(1, getStatistics().getPrepareStatementCount());
+
+        getItemService().setOperational(item.getSerialNumber(), false);
+
+        getMockMvc().perform(get("/items/" + item.getSerialNumber()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.status", is("NON_OPERATIONAL")));
+    }
+
+    @Test
+    public void testStaleItemUpdateIsRejected() throws Exception {
+        Item stale = getItemRepository().findBySerialNumber(item.getSerialNumber()).orElseThrow();
+
+        getItemService().setOperational(item.getSerialNumber(), false);
+
+        stale.setStatus(ItemStatus.NON_OPERATIONAL);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> getItemRepository().save(stale));
+    }
+
     @Test
     public void testNotFoundItemBySerialNumber() throws Exception {
         getMockMvc().perform(get("/items/123456789"))
@@ -78,7 +222,44 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isCreated());
 
-        verify(getProductKafkaTemplate(), times(1)).send(any(), any());
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), times(1)).send(any(), eq(String.valueOf(this.item.getProduct().getId())), any());
+    }
+
+    @Test
+    public void testCreateItemWithoutQueries() throws Exception {
+        getStatistics().clear();
+        startCountingExecutedStatements();
+
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1224");
+
+        // the item and outbox inserts and the category count update through Hibernate, and the history insert through
+        // JDBC: duplicates and unknown products are left to the constraints
+        assertEquals(3, getStatistics().getPrepareStatementCount());
+        assertEquals(2, getStatistics().getEntityInsertCount());
+        assertEquals(4, countExecutedStatements());
+
+        ProductException duplicate = assertThrows(ProductException.class,
+                () -> getItemService().createItem(this.item.getProduct().getId(), "122122-1224"));
+        assertEquals("Item with serial number 122122-1224 already exists", duplicate.getMessage());
+        ProductException unknownProduct = assertThrows(ProductException.class,
+                () -> getItemService().createItem(123456789L, "122122-1225"));
+        assertEquals("Could not find the product with Id: 123456789", unknownProduct.getMessage());
+        assertFalse(getItemService().findBySerialNumber("122122-1225").isPresent());
+    }
+
+    // H2 counts the executions of every statement, whoever sends it, from the moment the statistics are turned on.
+    // Transaction control and the statistics switch itself are left out
+    private void startCountingExecutedStatements() {
+        jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+    }
+
+    private long countExecutedStatements() {
+        return jdbcTemplate.queryForList("SELECT SQL_STATEMENT, EXECUTION_COUNT FROM INFORMATION_SCHEMA.QUERY_STATISTICS").stream()
+                .filter(row -> !row.get("SQL_STATEMENT").toString().matches("(?i)(SET|COMMIT|ROLLBACK)\\b.*"))
+                .mapToLong(row -> ((Number) row.get("EXECUTION_COUNT")).longValue())
+                .sum();
     }
 
     @Test
@@ -93,7 +274,8 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
 
-        verify(getProductKafkaTemplate(), never()).send(any(), any());
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), never()).send(any(), any(), any());
     }
 
     @Test
@@ -108,7 +290,102 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
 
-        verify(getProductKafkaTemplate(), never()).send(any(), any());
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), never()).send(any(), any(), any());
+    }
+
+    @Test
+    public void testCreateItemsInBatch() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        List<CreateItemRequest> createItemRequests = List.of(
+                new CreateItemRequest(productId, "122122-1230"),
+                new CreateItemRequest(productId, this.item.getSerialNumber()),
+                new CreateItemRequest(123456789L, "122122-1231"),
+                new CreateItemRequest(productId, "122122-1232"),
+                new CreateItemRequest(productId, "122122-1230"));
+
+        getMockMvc().perform(post("/items/batch")
+                .content(getObjectMapper().writeValueAsString(createItemRequests))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[0].result", is("CREATED")))
+                .andExpect(jsonPath("$[1].result", is("DUPLICATE")))
+                .andExpect(jsonPath("$[2].result", is("UNKNOWN_PRODUCT")))
+                .andExpect(jsonPath("$[3].result", is("CREATED")))
+                .andExpect(jsonPath("$[4].result", is("DUPLICATE")));
+
+        assertTrue(getItemService().findBySerialNumber("122122-1230").isPresent());
+        assertTrue(getItemService().findBySerialNumber("122122-1232").isPresent());
+        assertFalse(getItemService().findBySerialNumber("122122-1231").isPresent());
+
+        // a single event for the product, whatever the number of new units
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), times(1)).send(any(), eq(String.valueOf(productId)), any());
+    }
+
+    @Test
+    public void testProductAvailability() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        getItemService().createItem(productId, "122122-1223");
+        getItemService().setOperational("122122-1223", false);
+        getItemService().createItems(List.of(
+                new NewItem(productId, "122122-1224"),
+                new NewItem(productId, "122122-1225")));
+
+        getMockMvc().perform(get("/products/{productId}/availability", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.operational", is(3)))
+                .andExpect(jsonPath("$.nonOperational", is(1)));
+
+        getMockMvc().perform(get("/products/availability").param("productIds", productId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$." + productId + ".operational", is(3)));
+
+        getMockMvc().perform(get("/products/{productId}/availability", 123456789L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testProductAvailabilityIsReconciled() throws Exception {
+        Long productId = this.item.getProduct().getId();
+
+        // a change that bypasses the service
+        this.item.setStatus(ItemStatus.NON_OPERATIONAL);
+        getItemRepository().save(this.item);
+
+        getAvailabilityService().reconcile();
+
+        getMockMvc().perform(get("/products/{productId}/availability", productId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.operational", is(0)))
+                .andExpect(jsonPath("$.nonOperational", is(1)));
+    }
+
+    @Test
+    public void testProductAvailabilityIsKeptWhileRebuilt() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        AtomicBoolean rebuilding = new AtomicBoolean(true);
+        AtomicInteger missed = new AtomicInteger();
+
+        Thread reader = new Thread(() -> {
+            while (rebuilding.get()) {
+                if (getAvailabilityService().getAvailability(productId).getOperational() != 1) {
+                    missed.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                getAvailabilityService().rebuild();
+            }
+        } finally {
+            rebuilding.set(false);
+            reader.join();
+        }
+
+        assertEquals(0, missed.get());
     }
 
     @Test
@@ -120,21 +397,269 @@ public class IntegrationItemControllerTest extends IntegrationBaseTest{
                 "122122-1226"
         );
 
-        Mockito.reset(getProductKafkaTemplate());
+        getOutboxRelay().relay();
+        Mockito.clearInvocations(getProductKafkaTemplate());
 
         getMockMvc().perform(patch("/items/"+item.getSerialNumber()+"/status")
                 .content("false")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
-        verify(getProductKafkaTemplate(), never()).send(any(), any());
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), never()).send(any(), any(), any());
 
         getMockMvc().perform(patch("/items/"+item.getSerialNumber()+"/status")
                 .content("true")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
-        verify(getProductKafkaTemplate(), atMostOnce()).send(any(), any());
+        getOutboxRelay().relay();
+        verify(getProductKafkaTemplate(), atMostOnce()).send(any(), any(), any());
+    }
+
+    @Test
+    public void testOutboxEventsAreMarkedDelivered() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1228");
+
+        assertEquals(1, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), times(1)).send(any(), any(), any());
+        assertEquals(0, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testOutboxEventsAreRetriedWhenSendFails() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1228");
+
+        SettableListenableFuture<SendResult<String, ProductMessage>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker unavailable"));
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(failed);
+
+        getOutboxRelay().relay();
+
+        assertEquals(1, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(new AsyncResult<>(null));
+
+        getOutboxRelay().relay();
+
+        assertEquals(0, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testOutboxRelayDoesNotWaitForAcknowledgements() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1228");
+
+        SettableListenableFuture<SendResult<String, ProductMessage>> pending = new SettableListenableFuture<>();
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(pending);
+
+        getOutboxRelay().relay();
+        getOutboxRelay().relay();
+
+        // sent once, and not again while it is in flight
+        verify(getProductKafkaTemplate(), times(1)).send(any(), any(), any());
+        assertEquals(1, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+
+        pending.set(null);
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), times(1)).send(any(), any(), any());
+        assertEquals(0, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testOutboxRelaySendsEveryEventOfAProductInOneRun() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        for (int i = 0; i < 5; i++) {
+            getItemService().createItem(productId, "122122-123" + i);
+        }
+
+        SettableListenableFuture<SendResult<String, ProductMessage>> pending = new SettableListenableFuture<>();
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(pending);
+
+        getOutboxRelay().relay();
+
+        // the later events of the product do not wait for the earlier ones to be acknowledged
+        verify(getProductKafkaTemplate(), times(5)).send(any(), eq(String.valueOf(productId)), any());
+
+        pending.set(null);
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), times(5)).send(any(), any(), any());
+        assertEquals(0, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testOutboxRelayHoldsBackTheProductEventsAfterAFailure() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        getItemService().createItem(productId, "122122-1228");
+        getItemService().createItem(productId, "122122-1229");
+        List<Long> eventIds = getOutboxEventRepository().findAll().stream()
+                .filter(e -> e.getDeliveredAt() == null)
+                .map(OutboxEvent::getId)
+                .sorted()
+                .collect(Collectors.toList());
+
+        SettableListenableFuture<SendResult<String, ProductMessage>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker unavailable"));
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(failed);
+
+        getOutboxRelay().relay();
+
+        // the second event is not sent ahead of the first one
+        verify(getProductKafkaTemplate(), times(1)).send(any(), any(), any());
+        assertEquals(2, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(new AsyncResult<>(null));
+
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), times(3)).send(any(), any(), any());
+        assertTrue(getOutboxEventRepository().findById(eventIds.get(0)).orElseThrow().getDeliveredAt()
+                .compareTo(getOutboxEventRepository().findById(eventIds.get(1)).orElseThrow().getDeliveredAt()) <= 0);
+        assertEquals(0, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testOutboxEventsClaimedByAnotherRelayAreNotSent() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1228");
+        OutboxEvent event = getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).findFirst().orElseThrow();
+        event.setClaimedUntil(Instant.now().plusSeconds(60));
+        getOutboxEventRepository().save(event);
+
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), never()).send(any(), any(), any());
+
+        // until the claim expires
+        event = getOutboxEventRepository().findById(event.getId()).orElseThrow();
+        event.setClaimedUntil(Instant.now().minusSeconds(1));
+        getOutboxEventRepository().save(event);
+
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), times(1)).send(any(), any(), any());
+    }
+
+    @Test
+    public void testOutboxRelayStopsWhileCircuitIsOpen() throws Exception {
+        getItemService().createItem(this.item.getProduct().getId(), "122122-1228");
+
+        SettableListenableFuture<SendResult<String, ProductMessage>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker unavailable"));
+        when(getProductKafkaTemplate().send(any(), any(), any())).thenReturn(failed);
+
+        // the failure threshold is 3 in the tests
+        for (int i = 0; i < 3; i++) {
+            getOutboxRelay().relay();
+        }
+        assertEquals(PublishCircuitBreaker.State.OPEN, getPublishCircuitBreaker().getState());
+        // the catalog change publisher has a breaker of its own
+        assertEquals(PublishCircuitBreaker.State.CLOSED, catalogChangeCircuitBreaker.getState());
+        Mockito.clearInvocations(getProductKafkaTemplate());
+
+        getOutboxRelay().relay();
+
+        verify(getProductKafkaTemplate(), never()).send(any(), any(), any());
+        assertEquals(1, getOutboxEventRepository().findAll().stream().filter(e -> e.getDeliveredAt() == null).count());
+    }
+
+    @Test
+    public void testItemHistory() throws Exception {
+        getItemService().setOperational(item.getSerialNumber(), false);
+        getItemService().setOperational(item.getSerialNumber(), true);
+
+        getMockMvc().perform(get("/items/{serialNumber}/history", item.getSerialNumber()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status", is("OPERATIONAL")))
+                .andExpect(jsonPath("$[1].status", is("NON_OPERATIONAL")))
+                .andExpect(jsonPath("$[2].status", is("OPERATIONAL")));
+
+        getMockMvc().perform(get("/items/{serialNumber}/history", item.getSerialNumber()).param("to", "2020-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    public void testItemHistoryIgnoresUnchangedStatus() throws Exception {
+        getMockMvc().perform(patch("/items/{serialNumber}/status", item.getSerialNumber())
+                        .content("true")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(1, getItemStatusChangeRepository().count());
+    }
+
+    @Test
+    public void testItemHistoryOfBatch() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        getItemService().createItems(List.of(
+                new NewItem(productId, "122122-1224"),
+                new NewItem(productId, "122122-1225")));
+
+        assertEquals(3, getItemStatusChangeRepository().count());
+        assertEquals(ItemStatus.OPERATIONAL, getItemHistoryService().getTimeline("122122-1225", Instant.EPOCH, Instant.now()).get(0).getStatus());
+    }
+
+    @Test
+    public void testProductDowntime() throws Exception {
+        Long productId = this.item.getProduct().getId();
+        // down two days within the period
+        recordChange("A", productId, ItemStatus.OPERATIONAL, "2020-01-01T00:00:00Z");
+        recordChange("A", productId, ItemStatus.NON_OPERATIONAL, "2020-01-10T00:00:00Z");
+        recordChange("A", productId, ItemStatus.OPERATIONAL, "2020-01-12T00:00:00Z");
+        // already down when the period starts, one day within it
+        recordChange("B", productId, ItemStatus.NON_OPERATIONAL, "2019-12-01T00:00:00Z");
+        recordChange("B", productId, ItemStatus.OPERATIONAL, "2020-01-02T00:00:00Z");
+        // still down when the period ends, one day within it
+        recordChange("C", productId, ItemStatus.NON_OPERATIONAL, "2020-01-31T00:00:00Z");
+        // down outside the period only
+        recordChange("D", productId, ItemStatus.NON_OPERATIONAL, "2019-11-01T00:00:00Z");
+        recordChange("D", productId, ItemStatus.OPERATIONAL, "2019-11-02T00:00:00Z");
+
+        int fourDays = 4 * 24 * 3600 * 1000;
+
+        getMockMvc().perform(get("/products/{productId}/downtime", productId)
+                        .param("from", "2020-01-01T00:00:00Z")
+                        .param("to", "2020-02-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.downtimeMillis", is(fourDays)));
+
+        getMockMvc().perform(get("/products/downtime")
+                        .param("from", "2020-01-01T00:00:00Z")
+                        .param("to", "2020-02-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].productId", is(productId.intValue())))
+                .andExpect(jsonPath("$[0].downtimeMillis", is(fourDays)));
+
+        getMockMvc().perform(get("/products/{productId}/downtime", productId)
+                        .param("from", "2019-01-01T00:00:00Z")
+                        .param("to", "2019-06-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.downtimeMillis", is(0)));
+
+        getMockMvc().perform(get("/products/{productId}/downtime", productId)
+                        .param("from", "2020-02-01T00:00:00Z")
+                        .param("to", "2020-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+
+        getMockMvc().perform(get("/products/{productId}/downtime", 123456789L)
+                        .param("from", "2020-01-01T00:00:00Z")
+                        .param("to", "2020-02-01T00:00:00Z"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void recordChange(String serialNumber, Long productId, ItemStatus status, String changedAt) {
+        getItemStatusChangeRepository().save(ItemStatusChange.builder()
+                .serialNumber(serialNumber)
+                .productId(productId)
+                .status(status)
+                .changedAt(Instant.parse(changedAt))
+                .build());
     }
 
     @Test
@@ -0,0 +1,48 @@
+package edu.uoc.epcsd.productcatalog;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class IntegrationMetricsTest extends IntegrationBaseTest {
+
+    private Product product;
+
+    @BeforeEach
+    public void setup() throws ProductException {
+        Category category = getCategoryService().createCategory(null, "Test Category", "Test Description");
+        product = getProductService().createProduct(category.getId(), "Test Product", "Test Description", 1.0, "brand", "model");
+    }
+
+    @Test
+    public void testPrometheusEndpoint() throws Exception {
+        getMockMvc().perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isOk());
+        getItemService().createItem(product.getId(), "122122-1222");
+        getOutboxRelay().relay();
+
+        getMockMvc().perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(allOf(
+                        containsString("http_server_requests_seconds_bucket{application=\"productcatalog\",exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/products/{productId}\""),
+                        containsString("productcatalog_service_seconds_bucket{application=\"productcatalog\",class=\"ItemService\",exception=\"none\",method=\"createItem\""),
+                        containsString("spring_data_repository_invocations_seconds_bucket{application=\"productcatalog\",exception=\"None\",method=\"findSummaryById\""),
+                        containsString("productcatalog_outbox_events_total{application=\"productcatalog\",outcome=\"delivered\",}"),
+                        containsString("hikaricp_connections_active{"),
+                        containsString("hibernate_second_level_cache_requests_total{application=\"productcatalog\",entityManagerFactory=\"entityManagerFactory\",region=\"category\",result=\"hit\""),
+                        containsString("hibernate_cache_query_requests_total{"))));
+    }
+
+}
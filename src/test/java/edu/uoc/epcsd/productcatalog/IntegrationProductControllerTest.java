@@ -5,17 +5,39 @@ import edu.uoc.epcsd.productcatalog.controllers.dtos.CreateProductRequest;
 import edu.uoc.epcsd.productcatalog.entities.Category;
 import edu.uoc.epcsd.productcatalog.entities.Product;
 import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import edu.uoc.epcsd.productcatalog.repositories.ProductRepository;
+import edu.uoc.epcsd.productcatalog.repositories.projections.ProductSummary;
+import edu.uoc.epcsd.productcatalog.services.ProductDetails;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchIndex;
+import edu.uoc.epcsd.productcatalog.services.ProductSearchResult;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -23,6 +45,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureMockMvc
 public class IntegrationProductControllerTest extends IntegrationBaseTest {
 
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     Product product;
     Category category;
 
@@ -45,6 +73,27 @@ public class IntegrationProductControllerTest extends IntegrationBaseTest {
                 .andExpect(jsonPath("$", hasSize(1)));
     }
 
+    @Test
+    public void testGetAllProductsInOneStatement() throws Exception {
+        Category parent = category;
+        for (int depth = 1; depth <= 3; depth++) {
+            parent = getCategoryService().createCategory(parent.getId(), "Subcategory " + depth, "Test Description");
+            getProductService().createProduct(parent.getId(), "Test Product " + depth, "Test Description", 1.0, "brand", "model");
+        }
+        getCategoryService().getCategoryTree();
+
+        getStatistics().clear();
+        getMockMvc().perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[3].categoryId").value(parent.getId()))
+                .andExpect(jsonPath("$[3].categoryName").value("Subcategory 3"))
+                .andExpect(jsonPath("$[3].categoryPath", Matchers.contains("Test Category", "Subcategory 1", "Subcategory 2", "Subcategory 3")));
+
+        // no extra selects for the categories of the products or their parents
+        assertEquals(1, getStatistics().getPrepareStatementCount());
+    }
+
     @Test
     public void testGetAllProductsByName() throws Exception {
         getProductService().createProduct(
@@ -106,6 +155,140 @@ public class IntegrationProductControllerTest extends IntegrationBaseTest {
                 .andExpect(jsonPath("$", hasSize(1)));
     }
 
+    @Test
+    public void testGetAllProductsByCategoryIncludingSubcategories() throws Exception {
+        Category subcategory = getCategoryService().createCategory(category.getId(), "Test Subcategory", "Test Description");
+        Category otherCategory = getCategoryService().createCategory(null, "Test Category 2", "Test Description");
+        getProductService().createProduct(
+                subcategory.getId(),
+                "Test Product 2",
+                "Test Description 2",
+                1.0,
+                "brand",
+                "model" );
+        getProductService().createProduct(
+                otherCategory.getId(),
+                "Test Product 3",
+                "Test Description 2",
+                1.0,
+                "brand",
+                "model" );
+
+        getMockMvc().perform(get("/products?categoryId=" + category.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        getMockMvc().perform(get("/products?categoryId=" + category.getId() + "&includeSubcategories=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testSearchProducts() throws Exception {
+        Category cameras = getCategoryService().createCategory(null, "Cámaras", "Cámaras");
+        Category lights = getCategoryService().createCategory(null, "Iluminación", "Iluminación");
+        getProductService().createProduct(cameras.getId(), "Canon EOS R8", "Cámara de fotos Canon EOS R8", 200.0, "Canon", "EOS R8");
+        getProductService().createProduct(cameras.getId(), "Canon 500D", "Cámara de fotos Canon 500D", 100.0, "Canon", "500D");
+        getProductService().createProduct(lights.getId(), "Foco Phillips 220L", "Foco LED de iluminación", 120.0, "Phillips", "220L");
+
+        getMockMvc().perform(get("/products/search").param("q", "canon eos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.products", hasSize(2)))
+                .andExpect(jsonPath("$.products[0].name").value("Canon EOS R8"));
+
+        // accent folding and prefix matching
+        getMockMvc().perform(get("/products/search").param("q", "FOCO 220").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.products[0].name").value("Foco Phillips 220L"));
+        getMockMvc().perform(get("/products/search").param("q", "iluminacion"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].categoryName").value("Iluminación"));
+
+        // paging
+        getMockMvc().perform(get("/products/search").param("q", "camara").param("page", "1").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.products", hasSize(1)));
+    }
+
+    @Test
+    public void testSearchDeletedProduct() throws Exception {
+        getMockMvc().perform(get("/products/search").param("q", "test product"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1));
+
+        getProductService().deleteProduct(product.getId());
+
+        getMockMvc().perform(get("/products/search").param("q", "test product"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    public void testSearchIgnoresRolledBackProducts() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            try {
+                getProductService().createProduct(category.getId(), "Phantom Product", "Test Description", 1.0, "brand", "model");
+            } catch (ProductException e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+            return null;
+        });
+
+        getMockMvc().perform(get("/products/search").param("q", "phantom"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    public void testSearchPagesFollowOneLargePage() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            // "profesional" in some descriptions and a model starting with "canon" in others, so scores differ
+            getProductService().createProduct(category.getId(), "Canon " + i, i % 3 == 0 ? "Cámara profesional" : "Cámara",
+                    1.0, "Canon", i % 4 == 0 ? "Canonet" + i : "M" + i);
+        }
+
+        List<Long> all = productIds(getProductService().search("canon profesional", 0, 100));
+        assertEquals(30, all.size());
+
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 5; page++) {
+            ProductSearchResult result = getProductService().search("canon profesional", page, 7);
+            assertEquals(30, result.getTotal());
+            paged.addAll(productIds(result));
+        }
+        assertEquals(all, paged);
+    }
+
+    @Test
+    public void testSearchIndexRebuildKeepsChangesCommittedWhileReading() throws Exception {
+        ProductSearchIndex index = getProductSearchIndex();
+        ProductRepository repository = getProductRepository();
+
+        // another request creates a product and deletes one after the rebuild read them, before it replaces the index
+        ProductRepository slowRepository = Mockito.mock(ProductRepository.class, AdditionalAnswers.delegatesTo(repository));
+        Mockito.doAnswer(invocation -> {
+            List<ProductSummary> products = repository.findSummaries(null, null);
+            getProductService().createProduct(category.getId(), "Late Product", "Arrived late", 1.0, "brand", "model");
+            getProductService().deleteProduct(product.getId());
+            return products;
+        }).when(slowRepository).findSummaries(null, null);
+
+        ReflectionTestUtils.setField(index, "productRepository", slowRepository);
+        try {
+            index.rebuild();
+        } finally {
+            ReflectionTestUtils.setField(index, "productRepository", repository);
+        }
+
+        assertEquals(1, getProductService().search("late", 0, 10).getTotal());
+        assertEquals(0, getProductService().search("test", 0, 10).getTotal());
+    }
+
     @Test
     public void testGetProduct() throws Exception {
         getMockMvc().perform(get("/products/{productId}", product.getId()))
@@ -118,6 +301,40 @@ public class IntegrationProductControllerTest extends IntegrationBaseTest {
                 .andExpect(jsonPath("$.model").value(product.getModel()));
     }
 
+    @Test
+    public void testGetProductNotModified() throws Exception {
+        String eTag = getMockMvc().perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        getMockMvc().perform(get("/products/{productId}", product.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void testGetProductIsCachedUntilDeleted() throws Exception {
+        getMockMvc().perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isOk());
+
+        assertNotNull(cacheManager.getCache(ProductService.PRODUCT_DETAILS_CACHE).get(product.getId()));
+
+        // a write that bypasses the service is not seen while the entry is cached
+        product.setName("Renamed Product");
+        getProductRepository().save(product);
+
+        getMockMvc().perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Product"));
+
+        getProductService().deleteProduct(product.getId());
+
+        assertNull(cacheManager.getCache(ProductService.PRODUCT_DETAILS_CACHE).get(product.getId()));
+        getMockMvc().perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void testGetProductNotFound() throws Exception {
         getMockMvc().perform(get("/products/{productId}", 0))
@@ -182,4 +399,12 @@ public class IntegrationProductControllerTest extends IntegrationBaseTest {
         // Confirm the product has been deleted
         assertTrue(getProductRepository().findAll().isEmpty());
     }
+
+    private static List<Long> productIds(ProductSearchResult result) {
+        List<Long> ids = new ArrayList<>();
+        for (ProductDetails product : result.getProducts()) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
 }
@@ -0,0 +1,106 @@
+package edu.uoc.epcsd.productcatalog;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.ItemStatus;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.exceptions.MissingProductException;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=edu.uoc.epcsd.productcatalog.RecordingStatementInspector")
+@AutoConfigureMockMvc
+public class IntegrationQueryFilterTest extends IntegrationBaseTest {
+
+    Category category;
+    Product product;
+
+    @BeforeEach
+    public void setup() throws ProductException, MissingProductException {
+        category = getCategoryService().createCategory(null, "Test Category", "Test Description");
+        product = getProductService().createProduct(category.getId(), "Test Product", "Test Description", 1.0, "brand", "model");
+        getItemService().createItem(product.getId(), "SN-1");
+        getItemService().createItem(product.getId(), "SN-2");
+        getItemService().setOperational("SN-2", false);
+    }
+
+    @Test
+    public void testProductFilters() throws Exception {
+        String sql = listing("/products", 1);
+        assertFalse(sql.contains(" where "), sql);
+
+        sql = listing("/products?name=Test Product", 1);
+        assertWhere(sql, "name=?");
+
+        sql = listing("/products?categoryId=" + category.getId(), 1);
+        assertWhere(sql, "category_id=?");
+
+        sql = listing("/products?name=Other&categoryId=" + category.getId(), 0);
+        assertWhere(sql, "name=?", "category_id=?");
+    }
+
+    @Test
+    public void testCategoryFilters() throws Exception {
+        String sql = listing("/categories/", 1);
+        assertFalse(sql.contains(" where "), sql);
+
+        sql = listing("/categories/?name=Test Category", 1);
+        assertWhere(sql, "name=?");
+
+        sql = listing("/categories/?name=Test Category&description=Other", 0);
+        assertWhere(sql, "name=?", "description=?");
+    }
+
+    @Test
+    public void testItemFilters() throws Exception {
+        String sql = listing("/items", 2);
+        assertFalse(sql.contains(" where "), sql);
+
+        sql = listing("/items?status=" + ItemStatus.OPERATIONAL, 1);
+        assertWhere(sql, "status=?");
+
+        sql = listing("/items?after=SN-1&productId=" + product.getId(), 1);
+        assertWhere(sql, "serial_number>?", "id=?");
+    }
+
+    /**
+     * @return the SQL of the single query run to list the resource
+     */
+    private String listing(String uri, int size) throws Exception {
+        List<String> statements;
+        RecordingStatementInspector.start();
+        try {
+            getMockMvc().perform(get(uri))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(size)));
+        } finally {
+            statements = RecordingStatementInspector.stop();
+        }
+
+        assertEquals(1, statements.size(), statements.toString());
+        return statements.get(0).toLowerCase();
+    }
+
+    // only the given predicates, and no placeholders for the absent filters
+    private static void assertWhere(String sql, String... predicates) {
+        String where = sql.substring(sql.indexOf(" where "));
+        for (String predicate : predicates) {
+            assertTrue(where.contains(predicate), sql);
+        }
+        assertEquals(predicates.length - 1, where.split(" and ").length - 1, sql);
+        assertFalse(where.contains("is null"), sql);
+    }
+
+}
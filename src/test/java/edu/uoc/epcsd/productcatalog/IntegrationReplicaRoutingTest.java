@@ -0,0 +1,154 @@
+package edu.uoc.epcsd.productcatalog;
+
+import com.zaxxer.hikari.HikariDataSource;
+import edu.uoc.epcsd.productcatalog.config.DataSourceConfig;
+import edu.uoc.epcsd.productcatalog.config.ReadYourWritesFilter;
+import edu.uoc.epcsd.productcatalog.config.ReplicaRoutingDataSource;
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.exceptions.ProductException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica, plus a replica that is always down. The
+ * replica is brought up to date explicitly, by copying the primary into it, so replication lag can be simulated.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "productcatalog.datasource.replica-urls=" + IntegrationReplicaRoutingTest.REPLICA_URL + "," + IntegrationReplicaRoutingTest.UNREACHABLE_REPLICA_URL)
+public class IntegrationReplicaRoutingTest extends IntegrationBaseTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    static final String UNREACHABLE_REPLICA_URL = "jdbc:h2:tcp://localhost:1/unreachable";
+
+    @Autowired
+    HikariDataSource primaryDataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Category category;
+
+    @BeforeEach
+    public void setup() throws ProductException, SQLException {
+        category = getCategoryService().createCategory(null, "Test Category", "Test Description");
+        getProductService().createProduct(category.getId(), "Test Product", "Test Description", 1.0, "brand", "model");
+        replicate();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToReplica() {
+        assertEquals("REPLICA", databaseName(transactionManager, true));
+        assertEquals("TESTDB", databaseName(transactionManager, false));
+        // outside of transactions
+        assertEquals("TESTDB", jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+
+        // the unreachable replica is skipped, so every read went to the other one
+        assertEquals("REPLICA", databaseName(transactionManager, true));
+        assertEquals(1, meterRegistry.get(DataSourceConfig.REPLICAS_AVAILABLE_GAUGE).gauge().value());
+    }
+
+    @Test
+    public void testReadYourWrites() throws Exception {
+        getProductService().createProduct(category.getId(), "Test Product 2", "Test Description", 1.0, "brand", "model");
+
+        // not replicated yet
+        getMockMvc().perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        getMockMvc().perform(get("/products").header(ReadYourWritesFilter.READ_YOUR_WRITES_HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        replicate();
+
+        getMockMvc().perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    public void testCategoryQueriesReadThePrimary() throws Exception {
+        getMockMvc().perform(get("/categories/").param("name", "Test Category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        // evicts the cached query, which must not be filled again from the replica that has not seen the write yet
+        getCategoryService().createCategory(category.getId(), "Test Subcategory", "Test Description");
+
+        getMockMvc().perform(get("/categories/").param("name", "Test Subcategory"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        getMockMvc().perform(get("/categories/{categoryId}/subcategories", category.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        getCategoryService().invalidateCategoryTree();
+        assertEquals(2, getCategoryService().getCategoryTree().size());
+    }
+
+    @Test
+    public void testReadsFallBackToPrimaryWithoutReplicas() {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                primaryDataSource, List.of(new DriverManagerDataSource(UNREACHABLE_REPLICA_URL)), Duration.ofMinutes(1));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+
+        TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+
+        assertEquals("TESTDB", readOnly.execute(status -> template.queryForObject("SELECT DATABASE()", String.class)));
+        assertEquals(0, routingDataSource.getAvailableReplicas());
+    }
+
+    private String databaseName(PlatformTransactionManager transactionManager, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    /**
+     * Replaces the contents of the replica with those of the primary.
+     */
+    private void replicate() throws SQLException {
+        List<String> script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        DataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        try (Connection connection = replica.getConnection()) {
+            connection.createStatement().execute("DROP ALL OBJECTS");
+            for (String statement : script) {
+                connection.createStatement().execute(statement);
+            }
+        }
+    }
+
+}
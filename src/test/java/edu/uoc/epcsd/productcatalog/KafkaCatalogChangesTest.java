@@ -0,0 +1,122 @@
+package edu.uoc.epcsd.productcatalog;
+
+import edu.uoc.epcsd.productcatalog.entities.Category;
+import edu.uoc.epcsd.productcatalog.entities.Product;
+import edu.uoc.epcsd.productcatalog.kafka.CatalogChangeListener;
+import edu.uoc.epcsd.productcatalog.kafka.CatalogChangePublisher;
+import edu.uoc.epcsd.productcatalog.services.CategoryService;
+import edu.uoc.epcsd.productcatalog.services.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts, sharing a database and an embedded broker, stand in for two catalog instances: the
+ * changes made through one must reach the caches of the other.
+ */
+@EmbeddedKafka(partitions = 3, topics = CatalogChangePublisher.CATALOG_CHANGES_TOPIC)
+public class KafkaCatalogChangesTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Test
+    public void testChangesAreAppliedByOtherInstances(EmbeddedKafkaBroker broker) throws Exception {
+        try (ConfigurableApplicationContext first = start(broker, "first"); ConfigurableApplicationContext second = start(broker, "second")) {
+            waitForAssignment(first, broker);
+            waitForAssignment(second, broker);
+
+            CategoryService firstCategories = first.getBean(CategoryService.class);
+            ProductService firstProducts = first.getBean(ProductService.class);
+            CategoryService secondCategories = second.getBean(CategoryService.class);
+            ProductService secondProducts = second.getBean(ProductService.class);
+            Cache secondResponses = second.getBean(CacheManager.class).getCache(ProductService.PRODUCT_DETAILS_CACHE);
+            EntityManagerFactory secondEntityManagerFactory = second.getBean(EntityManagerFactory.class);
+            javax.persistence.Cache secondCache = secondEntityManagerFactory.getCache();
+            Statistics secondStatistics = secondEntityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+            Category category = firstCategories.createCategory(null, "Cameras", "Cameras");
+            Product product = firstProducts.createProduct(category.getId(), "Canon EOS R8", "Camera", 200.0, "Canon", "EOS R8");
+
+            // the search index of the second instance picks up the new product
+            await(() -> secondProducts.search("canon", 0, 10).getTotal() == 1);
+
+            // a new subcategory reaches the category tree and the cached category queries of the second instance,
+            // whose second-level cache knows nothing of the insert made by the first one
+            assertEquals(1, secondCategories.getCategoryTree().getSubtreeIds(category.getId()).size());
+            assertEquals(1, secondCategories.findAll(null, null).size());
+            assertEquals(1, secondCategories.findAll(null, null).size());
+            assertTrue(secondStatistics.getQueryCacheHitCount() > 0);
+            firstCategories.createCategory(category.getId(), "Mirrorless", "Mirrorless cameras");
+            await(() -> secondCategories.getCategoryTree().getSubtreeIds(category.getId()).size() == 2);
+            assertEquals(2, secondCategories.findAll(null, null).size());
+
+            // a changed category leaves the second-level cache of the second instance
+            assertTrue(secondCategories.findById(category.getId()).isPresent());
+            assertTrue(secondCache.contains(Category.class, category.getId()));
+            first.getBean(CatalogChangePublisher.class).categoryChanged(category.getId(), category.getVersion());
+            await(() -> !secondCache.contains(Category.class, category.getId()));
+
+            // and a deleted product leaves its cached response
+            assertTrue(secondProducts.findDetailsById(product.getId()).isPresent());
+            assertNotNull(secondResponses.get(product.getId()));
+            firstProducts.deleteProduct(product.getId());
+            await(() -> secondResponses.get(product.getId()) == null);
+            assertTrue(secondProducts.findDetailsById(product.getId()).isEmpty());
+            assertEquals(0, secondProducts.search("canon", 0, 10).getTotal());
+
+            assertEquals(5, invalidations(second));
+            // an instance does not apply its own changes again
+            assertEquals(0, invalidations(first));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(EmbeddedKafkaBroker broker, String instance) {
+        return new SpringApplicationBuilder(ProductCatalogApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "--productcatalog.kafka.admin.auto-create=false",
+                "--productcatalog.kafka.catalog-changes.enabled=true",
+                // both instances share the database, which the second one must not recreate
+                "--spring.datasource.url=jdbc:h2:mem:catalogchanges;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                // the default JCache cache manager is shared by every context in the JVM: each instance gets one of
+                // its own, under a URI of its own, which it closes with the context without touching the other tests
+                "--spring.jpa.properties.hibernate.javax.cache.uri=" + KafkaCatalogChangesTest.class.getResource("/application.conf") + "#" + instance);
+    }
+
+    private static void waitForAssignment(ConfigurableApplicationContext context, EmbeddedKafkaBroker broker) throws Exception {
+        for (MessageListenerContainer container : context.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, broker.getPartitionsPerTopic());
+        }
+    }
+
+    private static long invalidations(ConfigurableApplicationContext context) {
+        return context.getBean(MeterRegistry.class).get(CatalogChangeListener.INVALIDATION_LAG_TIMER).timer().count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the change to be applied");
+            Thread.sleep(50);
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package edu.uoc.epcsd.productcatalog;
+
+import edu.uoc.epcsd.productcatalog.kafka.KafkaConstants;
+import edu.uoc.epcsd.productcatalog.kafka.KafkaProducerConfig;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessage;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessageDeserializer;
+import edu.uoc.epcsd.productcatalog.kafka.ProductMessageSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trip of {@link ProductMessageSerializer} and the size of a unit_available record in each encoding; the
+ * encoding cost is measured by ProductMessageEncodingBenchmark.
+ */
+@Log4j2
+public class KafkaMessageEncodingTest {
+
+    private static final String TOPIC = KafkaConstants.PRODUCT_TOPIC + KafkaConstants.SEPARATOR + KafkaConstants.UNIT_AVAILABLE;
+
+    @Test
+    public void testRoundTrip() {
+        ProductMessageSerializer serializer = new ProductMessageSerializer();
+        ProductMessageDeserializer deserializer = new ProductMessageDeserializer();
+
+        for (Long productId : new Long[]{null, 0L, 1L, 127L, 128L, 300L, Long.MAX_VALUE, -1L}) {
+            Headers headers = new RecordHeaders();
+            ProductMessage message = ProductMessage.builder().productId(productId).build();
+            assertEquals(message, deserializer.deserialize(TOPIC, headers, serializer.serialize(TOPIC, headers, message)));
+        }
+
+        Headers headers = new RecordHeaders();
+        assertNull(serializer.serialize(TOPIC, headers, null));
+        assertNull(deserializer.deserialize(TOPIC, headers, null));
+    }
+
+    @Test
+    public void testUnknownSchemaVersionIsRejected() {
+        ProductMessageDeserializer deserializer = new ProductMessageDeserializer();
+        byte[] value = new ProductMessageSerializer().serialize(TOPIC, ProductMessage.builder().productId(1L).build());
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, new RecordHeaders(), value));
+
+        Headers headers = new RecordHeaders();
+        headers.add(ProductMessageSerializer.SCHEMA_VERSION_HEADER, new byte[]{ProductMessageSerializer.SCHEMA_VERSION + 1});
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, headers, value));
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanJson() {
+        int json = recordSize(new JsonSerializer<>());
+        int binary = recordSize(new ProductMessageSerializer());
+
+        log.info(String.format("unit_available record: %d bytes as json, %d bytes as binary", json, binary));
+
+        assertTrue(binary < json);
+    }
+
+    @Test
+    public void testValueFormatIsBoundAtStartup() {
+        // the conversion service SpringApplication gives the bean factory
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .withUserConfiguration(KafkaProducerConfig.class)
+                .withPropertyValues("spring.kafka.bootstrap-servers=localhost:9092");
+
+        runner.withPropertyValues("productcatalog.kafka.producer.value-format=binary").run(context ->
+                assertEquals(ProductMessageSerializer.class, context.getBean(KafkaProducerConfig.class)
+                        .productMessageProducerConfigs().get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG)));
+
+        runner.withPropertyValues("productcatalog.kafka.producer.value-format=json").run(context ->
+                assertEquals(JsonSerializer.class, context.getBean(KafkaProducerConfig.class)
+                        .productMessageProducerConfigs().get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG)));
+
+        runner.withPropertyValues("productcatalog.kafka.producer.value-format=binray").run(context ->
+                assertNotNull(context.getStartupFailure()));
+    }
+
+    // the value and the headers, keys included, as they travel in the record
+    private static int recordSize(Serializer<ProductMessage> serializer) {
+        Headers headers = new RecordHeaders();
+        int size = serializer.serialize(TOPIC, headers, ProductMessage.builder().productId(123_456L).build()).length;
+        for (Header header : headers) {
+            size += header.key().length() + header.value().length;
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,47 @@
+package edu.uoc.epcsd.productcatalog;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the SQL Hibernate sends to the database between {@link #start()} and {@link #stop()}, so tests can check the
+ * shape of the generated queries. Only the contexts that register it as the statement inspector are recorded.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    private static volatile boolean recording;
+
+    @Override
+    public String inspect(String sql) {
+        if (recording) {
+            synchronized (STATEMENTS) {
+                STATEMENTS.add(sql);
+            }
+        }
+        return sql;
+    }
+
+    public static void start() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+        recording = true;
+    }
+
+    /**
+     * @return the statements recorded since {@link #start()}
+     */
+    public static List<String> stop() {
+        recording = false;
+        synchronized (STATEMENTS) {
+            List<String> statements = List.copyOf(STATEMENTS);
+            STATEMENTS.clear();
+            return statements;
+        }
+    }
+
+}